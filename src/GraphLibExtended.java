@@ -1,4 +1,7 @@
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
 
 /**
  * Library for graph analysis
@@ -67,6 +70,63 @@ public class GraphLibExtended {
 		return sortedVertices;
 	}
 
+	/**
+	 * Return the k items with the largest scores, without sorting all of them
+	 * A heap holds the best k so far with the worst of them on top, so this takes O(n log k) time and O(k) space
+	 * @param items	items to select from
+	 * @param k		max number of items to return
+	 * @param score	score of an item
+	 * @param ties	order of items with equal scores, so that the selection doesn't depend on iteration order
+	 * @return		the selected items, sorted by score, decreasing (i.e., largest at index 0), then by ties
+	 */
+	public static <V> List<V> topK(Iterable<V> items, int k, ToIntFunction<V> score, Comparator<? super V> ties) {
+		Comparator<V> order = Comparator.comparingInt(score).reversed().thenComparing(ties);
+		PriorityQueue<V> best = new PriorityQueue<>(order.reversed());
+
+		if (k > 0)
+			for (V item: items) keep(best, k, item);
+
+		List<V> selected = new ArrayList<>(best);
+		selected.sort(order);
+		return selected;
+	}
+
+	/**
+	 * Return the k edges with the largest weights, as [u, v] pairs
+	 * A pair of edges in both directions is considered once, as [smaller, larger] vertex, so this suits undirected graphs
+	 * Like topK, this takes O(E log k) time and never holds more than k edges
+	 * @param g		graph
+	 * @param k		max number of edges to return
+	 * @param weight	weight of an edge given its label
+	 * @return		the selected edges, sorted by weight, decreasing (i.e., largest at index 0), then by vertices
+	 */
+	public static <V extends Comparable<? super V>,E> List<List<V>> topKEdges(Graph<V,E> g, int k, ToIntFunction<E> weight) {
+		Comparator<List<V>> order = Comparator.comparingInt((List<V> pair) -> weight.applyAsInt(g.getLabel(pair.get(0), pair.get(1))))
+				.reversed().thenComparing(pair -> pair.get(0)).thenComparing(pair -> pair.get(1));
+		PriorityQueue<List<V>> best = new PriorityQueue<>(order.reversed());
+
+		if (k > 0)
+			for (V u: g.vertices())
+				for (V v: g.outNeighbors(u))
+					// the reverse edge is considered from its smaller end
+					if (u.compareTo(v) <= 0 || !g.hasEdge(v, u)) keep(best, k, List.of(u, v));
+
+		List<List<V>> selected = new ArrayList<>(best);
+		selected.sort(order);
+		return selected;
+	}
+
+	/**
+	 * Add an item to a heap of the best k items so far, whose comparator puts the worst on top
+	 */
+	private static <T> void keep(PriorityQueue<T> best, int k, T item) {
+		if (best.size() < k) best.add(item);
+		else if (best.comparator().compare(item, best.peek()) > 0) {
+			best.poll();
+			best.add(item);
+		}
+	}
+
 	/**
 	 * Return the spanning tree from a source vertex in a graph.
 	 * @param g The original graph
@@ -74,6 +134,17 @@ public class GraphLibExtended {
 	 * @return A spanning tree as a Graph, the distances are stored in the edges.
 	 */
 	public static <V,E> Graph<V,Integer> bfs(Graph<V,E> g, V source) {
+		return bfs(g, source, e -> true);
+	}
+
+	/**
+	 * Return the spanning tree from a source vertex in a graph, only following edges whose label passes the filter.
+	 * @param g The original graph
+	 * @param source The vertex where bfs starts
+	 * @param edgeFilter Whether an edge (given its label) can be used
+	 * @return A spanning tree as a Graph, the distances are stored in the edges.
+	 */
+	public static <V,E> Graph<V,Integer> bfs(Graph<V,E> g, V source, Predicate<E> edgeFilter) {
 		Graph<V, Integer> spanningTree = new AdjacencyMapGraph<>();
 		V v;
 		Deque<V> q = new ArrayDeque<>();
@@ -83,7 +154,7 @@ public class GraphLibExtended {
 		while (!q.isEmpty()) {
 			v = q.poll();
 			for (V neighbor: g.outNeighbors(v))
-				if (!spanningTree.hasVertex(neighbor)) {
+				if (!spanningTree.hasVertex(neighbor) && edgeFilter.test(g.getLabel(v, neighbor))) {
 					spanningTree.insertVertex(neighbor);
 					spanningTree.insertDirected(neighbor, v, spanningTree.outDegree(v) > 0 ? spanningTree.getLabel(v, spanningTree.outNeighbors(v).iterator().next()) + 1 : 1);
 					q.add(neighbor);
@@ -94,6 +165,62 @@ public class GraphLibExtended {
 		return spanningTree;
 	}
 
+	/**
+	 * Return the shortest path tree from a source vertex in a graph with weighted edges (Dijkstra).
+	 * @param g The original graph
+	 * @param source The vertex where the search starts
+	 * @param weight The non-negative cost of an edge given its label; a negative or infinite cost excludes the edge
+	 * @return A spanning tree as a Graph, the total costs from the source are stored in the edges.
+	 */
+	public static <V,E> Graph<V,Double> dijkstra(Graph<V,E> g, V source, ToDoubleFunction<E> weight) {
+		// number the vertices so the search state fits in primitive arrays
+		List<V> vertices = new ArrayList<>();
+		Map<V, Integer> ids = new HashMap<>();
+		for (V v: g.vertices()) {
+			ids.put(v, vertices.size());
+			vertices.add(v);
+		}
+
+		double[] dist = new double[vertices.size()];
+		int[] parent = new int[vertices.size()];
+		boolean[] done = new boolean[vertices.size()];
+		Arrays.fill(dist, INF);
+		Arrays.fill(parent, -1);
+
+		MinHeap frontier = new MinHeap(16);
+		int s = ids.get(source);
+		dist[s] = 0;
+		frontier.push(0, s);
+
+		while (!frontier.isEmpty()) {
+			double d = frontier.peekKey();
+			int u = (int) frontier.poll();
+			// skip entries that were superseded by a shorter path
+			if (done[u]) continue;
+			done[u] = true;
+
+			V v = vertices.get(u);
+			for (V neighbor: g.outNeighbors(v)) {
+				double w = weight.applyAsDouble(g.getLabel(v, neighbor));
+				if (w < 0 || Double.isInfinite(w)) continue;
+				int n = ids.get(neighbor);
+				if (!done[n] && d + w < dist[n]) {
+					dist[n] = d + w;
+					parent[n] = u;
+					frontier.push(dist[n], n);
+				}
+			}
+		}
+
+		Graph<V, Double> spanningTree = new AdjacencyMapGraph<>();
+		for (int i = 0; i < vertices.size(); i++)
+			if (done[i]) spanningTree.insertVertex(vertices.get(i));
+		for (int i = 0; i < vertices.size(); i++)
+			if (parent[i] >= 0) spanningTree.insertDirected(vertices.get(i), vertices.get(parent[i]), dist[i]);
+
+		return spanningTree;
+	}
+
 	/**
 	 * Return the path from the source to its origin
 	 * @param tree A spanning tree
@@ -1,6 +1,10 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
 
 /**
  * Kevin Bacon Game
@@ -9,7 +13,8 @@ import java.util.*;
  */
 
 public class KevinBaconGame {
-    Graph<String, Set<String>> network;
+    // the actor network, labeled with the movies each pair shared (MappedKevinBaconGame keeps its own graph)
+    Graph<String, MovieSet> network;
     // holds the paths from current center
     Graph<String, Integer> spanningTree;
     // the center vertex
@@ -19,6 +24,19 @@ public class KevinBaconGame {
     List<String> actorsSortedByAvgSeparation;
     List<String> actorsSortedByDegree;
     List<String> actorsSortedBySeparation;
+    // name indices for completion and typo suggestions
+    NameIndex actorIndex;
+    NameIndex movieIndex;
+    // title and release year (0 if the title has none) of each movie, by movie id
+    List<String> movieTitles;
+    short[] movieYears;
+    // ids of the movies that constrained and weighted paths must not use
+    BitSet avoidedMovies = new BitSet();
+    // number of (known) movies each actor appeared in
+    Map<String, Integer> actorFilmCounts;
+    // how many names to suggest, and how many typos to tolerate
+    static final int SUGGESTION_COUNT = 5;
+    static final int SUGGESTION_EDITS = 2;
 
 
     /**
@@ -29,9 +47,13 @@ public class KevinBaconGame {
      */
     public KevinBaconGame(String moviesPath, String actorsPath, String movieActorsPath) throws Exception {
         Map<String, String> actors = new HashMap<>();
-        Map<String, String> movies = new HashMap<>();
-        Map<String, Set<String>> actorsOfMovies = new HashMap<>();
+        Map<String, Integer> movies = new HashMap<>();		// movie file id -> movie id
+        Map<String, Integer> movieIds = new HashMap<>();
+        List<Set<String>> actorsOfMovies = new ArrayList<>();
         network = new AdjacencyMapGraph<>();
+        movieTitles = new ArrayList<>();
+        movieYears = new short[16];
+        actorFilmCounts = new HashMap<>();
 
         String line;
 
@@ -40,9 +62,16 @@ public class KevinBaconGame {
         while ((line = input.readLine()) != null) {
 
             String[] tks = line.split("\\|");
-            // set the default center to the first actor
-            movies.put(tks[0], tks[1]);
-            actorsOfMovies.put(tks[1], new HashSet<>());
+            Integer id = movieIds.get(tks[1]);
+            if (id == null) {
+                id = movieTitles.size();
+                movieIds.put(tks[1], id);
+                movieTitles.add(tks[1]);
+                actorsOfMovies.add(new HashSet<>());
+                if (id == movieYears.length) movieYears = Arrays.copyOf(movieYears, 2 * id);
+                movieYears[id] = (short) parseYear(tks[1]);
+            }
+            movies.put(tks[0], id);
         }
         input.close();
 
@@ -65,15 +94,23 @@ public class KevinBaconGame {
         }
         input.close();
 
-        // construct graph from actorsOfMovies
-        actorsOfMovies.forEach((movie, as) -> {
+        // index the names for lookups that are not exact
+        actorIndex = new NameIndex(network.vertices());
+        movieIndex = new NameIndex(movieTitles);
+
+        // construct graph from actorsOfMovies, counting the films of each actor on the way
+        // (the number of films two actors share is the size of their edge label)
+        for (int movie = 0; movie < actorsOfMovies.size(); movie++) {
+            Set<String> as = actorsOfMovies.get(movie);
+            for(String actor: as) actorFilmCounts.merge(actor, 1, Integer::sum);
+            // both directions share one label, so each pair is visited once
             for(String actorA: as)
                 for(String actorB: as)
-                    if (!actorA.equals(actorB)) {
-                        if (!network.hasEdge(actorA, actorB)) network.insertUndirected(actorA, actorB, new HashSet<>());
-                        network.getLabel(actorA, actorB).add(movie);
+                    if (actorA.compareTo(actorB) < 0) {
+                        if (!network.hasEdge(actorA, actorB)) network.insertUndirected(actorA, actorB, new MovieSet(movieTitles));
+                        network.getLabel(actorA, actorB).addMovie(movie);
                     }
-        });
+        }
 
         // save all the average separations preprocess the lists while calculating spanning trees
         avgSeparation = new HashMap<>();
@@ -99,6 +136,38 @@ public class KevinBaconGame {
 
     }
 
+    /**
+     * For subclasses that load the network their own way
+     */
+    protected KevinBaconGame() {
+    }
+
+    /**
+     * Parse the release year at the end of a movie title, e.g. "Toy Story (1995)",
+     * or "Battle Royale (Batoru Rowaiaru) 2000" where it isn't in parentheses
+     * @return the year, or 0 if the title doesn't end with one
+     */
+    static int parseYear(String title) {
+        boolean parenthesized = title.endsWith(")");
+        int end = parenthesized ? title.length() - 1 : title.length();
+        if (end < 5 || title.charAt(end - 5) != (parenthesized ? '(' : ' ')) return 0;
+
+        int year = 0;
+        for (int i = end - 4; i < end; i++) {
+            char c = title.charAt(i);
+            if (c < '0' || c > '9') return 0;
+            year = year * 10 + (c - '0');
+        }
+        return year;
+    }
+
+    /**
+     * whether the actor is in the network
+     */
+    boolean hasActor(String actor) {
+        return network.hasVertex(actor);
+    }
+
     // Below are functions for the commands
 
     /**
@@ -147,6 +216,28 @@ public class KevinBaconGame {
 
     }
 
+    /**
+     * list the actors who appeared in the most movies
+     */
+    void listActorsByFilmCount(int count) {
+        List<String> actors = GraphLibExtended.topK(actorFilmCounts.keySet(), count, actorFilmCounts::get, Comparator.naturalOrder());
+        System.out.println("The top " + actors.size() + " actor(s) by number of movies:");
+        for (String actor: actors)
+            System.out.println(actor + " - " + actorFilmCounts.get(actor));
+        System.out.println();
+    }
+
+    /**
+     * list the pairs of actors who appeared together in the most movies
+     */
+    void listTopCollaborators(int count) {
+        List<List<String>> pairs = GraphLibExtended.topKEdges(network, count, MovieSet::size);
+        System.out.println("The top " + pairs.size() + " pair(s) of actors by number of shared movies:");
+        for (List<String> pair: pairs)
+            System.out.println(pair.get(0) + " & " + pair.get(1) + " - " + network.getLabel(pair.get(0), pair.get(1)).size());
+        System.out.println();
+    }
+
     /**
      * list actors with infinite separation from the current center
      */
@@ -157,12 +248,20 @@ public class KevinBaconGame {
         System.out.println();
     }
 
+    /**
+     * whether there is a path from the queried actor to the current center
+     */
+    boolean isReachable(String actor) {
+        return spanningTree.hasVertex(actor);
+    }
+
     /**
      * show the path from the queried actor to current center of the universe
      */
     void showPath(String actor) {
         if (!network.hasVertex(actor)) {
             System.out.println("Actor not found");
+            suggestActors(actor);
             return;
         }
         if (!spanningTree.hasVertex(actor)) {
@@ -183,6 +282,98 @@ public class KevinBaconGame {
         System.out.println();
     }
 
+    /**
+     * show the shortest path from the queried actor to the current center,
+     * only through movies released between low and high and not avoided
+     */
+    void showPathWithinYears(String actor, int low, int high) {
+        if (!network.hasVertex(actor)) {
+            System.out.println("Actor not found");
+            suggestActors(actor);
+            return;
+        }
+        if (actor.equals(center)) {
+            System.out.println(actor + " is the current center.");
+            return;
+        }
+        IntPredicate allowed = movie -> movieYears[movie] != 0 && movieYears[movie] >= low && movieYears[movie] <= high && !avoidedMovies.get(movie);
+
+        Graph<String, Integer> tree = GraphLibExtended.bfs(network, center, label -> label.count(allowed) > 0);
+        if (!tree.hasVertex(actor)) {
+            System.out.println(center + " is unreachable from " + actor + " through movies from " + low + " to " + high);
+            return;
+        }
+
+        List<String> path = GraphLibExtended.getPath(tree, actor);
+        System.out.println(actor + "'s number through movies from " + low + " to " + high + " is " + (path.size() - 1));
+        printPath(path, allowed);
+    }
+
+    /**
+     * show the path from the queried actor to the current center that favors actors sharing many movies:
+     * each step costs 1 / (number of shared movies that are not avoided)
+     */
+    void showWeightedPath(String actor) {
+        if (!network.hasVertex(actor)) {
+            System.out.println("Actor not found");
+            suggestActors(actor);
+            return;
+        }
+        if (actor.equals(center)) {
+            System.out.println(actor + " is the current center.");
+            return;
+        }
+        IntPredicate allowed = movie -> !avoidedMovies.get(movie);
+
+        Graph<String, Double> tree = GraphLibExtended.dijkstra(network, center, label -> {
+            int shared = label.count(allowed);
+            return shared == 0 ? -1 : 1.0 / shared;
+        });
+        if (!tree.hasVertex(actor)) {
+            System.out.println(center + " is unreachable from " + actor);
+            return;
+        }
+
+        List<String> path = GraphLibExtended.getPath(tree, actor);
+        System.out.println(actor + "'s weighted path to " + center + " has " + (path.size() - 1) + " step(s), cost " + String.format(Locale.ROOT, "%.3f", tree.getLabel(actor, path.get(1))));
+        printPath(path, allowed);
+    }
+
+    /**
+     * print each step of a path with the shared movies that pass the filter
+     */
+    void printPath(List<String> path, IntPredicate allowed) {
+        for (int i = 0; i < path.size() - 1; i++) {
+            MovieSet label = network.getLabel(path.get(i), path.get(i + 1));
+            List<String> movies = new ArrayList<>();
+            for (int k = 0; k < label.size(); k++)
+                if (allowed.test(label.movie(k))) movies.add(movieTitles.get(label.movie(k)));
+            System.out.println(path.get(i) + " appeared in " + movies + " with " + path.get(i + 1));
+        }
+        System.out.println();
+    }
+
+    /**
+     * avoid a movie in constrained and weighted paths, or stop avoiding it if it already is
+     */
+    void toggleAvoidedMovie(String movie) {
+        int id = movieIndex.id(movie);
+        if (id < 0) {
+            System.out.println("Movie not found");
+            suggestNames(movieIndex, movie);
+            return;
+        }
+
+        if (avoidedMovies.get(id)) {
+            avoidedMovies.clear(id);
+            System.out.println("No longer avoiding " + movie);
+        } else {
+            avoidedMovies.set(id);
+            System.out.println("Avoiding " + movie);
+        }
+        System.out.println();
+    }
+
     /**
      *  list actors sorted by non-infinite separation from the current center, with separation within bounds
      */
@@ -215,6 +406,13 @@ public class KevinBaconGame {
     }
     void changeCenter(String actor, Boolean hideOutput) {
         if (actor == null) return;
+        if (!network.hasVertex(actor)) {
+            if (!hideOutput) {
+                System.out.println("Actor not found");
+                suggestActors(actor);
+            }
+            return;
+        }
         center = actor;
         actorsSortedBySeparation = new ArrayList<>();
         spanningTree = GraphLibExtended.bfs(network, center);
@@ -228,6 +426,33 @@ public class KevinBaconGame {
         if (!hideOutput) System.out.println(center + " is now the center of the acting universe, connected to " + spanningTree.numVertices() + "/" + network.numVertices() + " actors with average separation " + avgSeparation.get(center) + "\n");
     }
 
+    /**
+     * suggest actors whose names start with, or are a few typos away from, an unknown name
+     */
+    void suggestActors(String name) {
+        suggestNames(actorIndex, name);
+    }
+    void suggestNames(NameIndex index, String name) {
+        List<String> suggestions = index.complete(name, SUGGESTION_COUNT);
+        for (String n: index.suggest(name, SUGGESTION_EDITS, SUGGESTION_COUNT))
+            if (suggestions.size() < SUGGESTION_COUNT && !suggestions.contains(n)) suggestions.add(n);
+
+        if (!suggestions.isEmpty()) System.out.println("Did you mean: " + String.join(", ", suggestions) + "?");
+    }
+
+    /**
+     * list actors and movies whose names start with the given prefix
+     */
+    void listNamesByPrefix(String prefix) {
+        System.out.println("Actor(s) starting with \"" + prefix + "\":");
+        for (String actor: actorIndex.complete(prefix, SUGGESTION_COUNT))
+            System.out.println(actor);
+        System.out.println("Movie(s) starting with \"" + prefix + "\":");
+        for (String movie: movieIndex.complete(prefix, SUGGESTION_COUNT))
+            System.out.println(movie);
+        System.out.println();
+    }
+
     /**
      * Start the game
      */
@@ -238,28 +463,39 @@ public class KevinBaconGame {
         String MoviesPath = "inputs/movies.txt";
         String ActorsPath = "inputs/actors.txt";
         String MovieActorsPath = "inputs/movie-actors.txt";
+        // e.g. -Dkbg.graph=inputs/network.graph to keep the network in a memory-mapped file, built on the first run
+        String GraphPath = System.getProperty("kbg.graph");
+        // and -Dkbg.order=name|degree|bfs|rcm to choose how its vertices are laid out
+        String VertexOrder = System.getProperty("kbg.order");
         String instructions = """
                 Commands:
+                a <movie>: avoid <movie> in constrained and weighted paths, or stop avoiding it
                 c <#>: list top (positive number) or bottom (negative) <#> centers of the universe, sorted by average separation
                 d <low> <high>: list actors sorted by degree, with degree between low and high
+                f <prefix>: list actors and movies whose names start with <prefix>
                 h: show the instructions again
                 i: list actors with infinite separation from the current center
+                m <#>: list the top <#> actors by number of movies
                 p <name>: find path from <name> to current center of the universe
                 s <low> <high>: list actors sorted by non-infinite separation from the current center, with separation between low and high
+                t <#>: list the top <#> pairs of actors by number of shared movies
                 u <name>: make <name> the center of the universe
+                w <name>: find path from <name> to current center, preferring actors who share many movies
+                y <low> <high> <name>: find path from <name> to current center, only through movies released between low and high
                 q: quit game
                 """;
         String header = "Kevin Bacon game > ";
         String ERR_INVALID_COMMAND = "Invalid command";
-        String ERR_UNKNOWN_ACTOR = "Actor not found";
         String ERR_UNREACHABLE_ACTOR = "This actor is not connected to ";
         String ERR_INVALID_PARAMETER = "Invalid parameter";
         String ERR_UNRECOGNIZED_COMMAND = "Unrecognized command";
 
         KevinBaconGame game = null;
+        if (VertexOrder != null && GraphPath == null) System.out.println("Ignoring -Dkbg.order, which only applies to a mapped network (-Dkbg.graph)");
 
         try {
-            game = new KevinBaconGame(MoviesPath, ActorsPath, MovieActorsPath);
+            if (GraphPath != null) game = new MappedKevinBaconGame(MoviesPath, ActorsPath, MovieActorsPath, GraphPath, VertexOrder);
+            else game = new KevinBaconGame(MoviesPath, ActorsPath, MovieActorsPath);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -286,6 +522,10 @@ public class KevinBaconGame {
             String[] tks = line.split(" +");
 
             switch (tks[0]) {
+                case "a":   // avoid a movie
+                    if (tks.length > 1) game.toggleAvoidedMovie(line.split(" +", 2)[1]);
+                    else System.out.println(ERR_INVALID_COMMAND);
+                    break;
                 case "c":   // list sorted by avg separation
                     if (tks.length > 1) {
                         try {
@@ -307,6 +547,10 @@ public class KevinBaconGame {
                     else if (tks.length == 1) game.listActorsByDegree();
                     else System.out.println(ERR_INVALID_COMMAND);
                     break;
+                case "f":   // complete a name
+                    if (tks.length > 1) game.listNamesByPrefix(line.split(" +", 2)[1]);
+                    else System.out.println(ERR_INVALID_COMMAND);
+                    break;
                 case "h":   // help - show the command list
                     if (tks.length == 1) System.out.println(instructions);
                     else System.out.println(ERR_INVALID_COMMAND);
@@ -315,14 +559,23 @@ public class KevinBaconGame {
                     if (tks.length == 1) game.listUnreachableActors();
                     else System.out.println(ERR_INVALID_COMMAND);
                     break;
+                case "m":   // list actors by number of movies
+                    if (tks.length > 1) {
+                        try {
+                            game.listActorsByFilmCount(Integer.parseInt(line.split(" +", 2)[1]));
+                        } catch (NumberFormatException e) {
+                            System.out.println(ERR_INVALID_PARAMETER);
+                        }
+                    } else System.out.println(ERR_INVALID_COMMAND);
+                    break;
                 case "p":   // display a path to the center
                     if (tks.length > 1) {
                         String actor = line.split(" +", 2)[1];
-                        if (game.network.hasVertex(actor)) {
-                            if (game.spanningTree.hasVertex(actor)) game.showPath(actor);
+                        if (game.hasActor(actor)) {
+                            if (game.isReachable(actor)) game.showPath(actor);
                             else System.out.println(ERR_UNREACHABLE_ACTOR + game.center);
                         }
-                        else System.out.println(ERR_UNKNOWN_ACTOR);
+                        else game.showPath(actor);
                     } else System.out.println(ERR_INVALID_COMMAND);
                     break;
                 case "s":   // list sorted by separation
@@ -337,11 +590,33 @@ public class KevinBaconGame {
                     else if (tks.length == 1) game.listActorsBySeparation();
                     else System.out.println(ERR_INVALID_COMMAND);
                     break;
+                case "t":   // list pairs of actors by shared movies
+                    if (tks.length > 1) {
+                        try {
+                            game.listTopCollaborators(Integer.parseInt(line.split(" +", 2)[1]));
+                        } catch (NumberFormatException e) {
+                            System.out.println(ERR_INVALID_PARAMETER);
+                        }
+                    } else System.out.println(ERR_INVALID_COMMAND);
+                    break;
                 case "u":   // change the center of the universe
                     if (tks.length > 1) {
                         String actor = line.split(" +", 2)[1];
-                        if (game.network.hasVertex(actor)) game.changeCenter(actor);
-                        else System.out.println(ERR_UNKNOWN_ACTOR);
+                        game.changeCenter(actor);
+                    } else System.out.println(ERR_INVALID_COMMAND);
+                    break;
+                case "w":   // display a path weighted by shared movies
+                    if (tks.length > 1) game.showWeightedPath(line.split(" +", 2)[1]);
+                    else System.out.println(ERR_INVALID_COMMAND);
+                    break;
+                case "y":   // display a path through movies of a year range
+                    if (tks.length > 3) {
+                        tks = line.split(" +", 4);
+                        try {
+                            game.showPathWithinYears(tks[3], Integer.parseInt(tks[1]), Integer.parseInt(tks[2]));
+                        } catch (NumberFormatException e) {
+                            System.out.println(ERR_INVALID_PARAMETER);
+                        }
                     } else System.out.println(ERR_INVALID_COMMAND);
                     break;
                 case "q":   // quit game
@@ -423,10 +698,215 @@ public class KevinBaconGame {
         }
     }
 
+    /**
+     * Test function for the name index: completion, exact ids and typo suggestions over the test actors,
+     * plus a name that only differs from one of them by case. Suggestions are checked against a brute-force
+     * edit distance over every name.
+     */
+    static void testNameIndex() {
+        try {
+            List<String> names = new ArrayList<>();
+            BufferedReader input = new BufferedReader(new FileReader("inputs/actorsTest.txt"));
+            String line;
+            while ((line = input.readLine()) != null) names.add(line.split("\\|")[1]);
+            input.close();
+            names.add("kevin bacon");
+            NameIndex index = new NameIndex(names);
+
+            System.out.println("Names starting with \"kevin\": " + index.complete("kevin", 5));
+            System.out.println("Names starting with \"Nobody\": " + index.complete("Nobody", 5));
+            System.out.println("Id of \"Kevin Bacon\": " + index.id("Kevin Bacon") + ", of \"kevin bacon\": " + index.id("kevin bacon") + ", of \"KEVIN BACON\": " + index.id("KEVIN BACON"));
+            System.out.println("Suggestions for \"Kevn Bacon\": " + index.suggest("Kevn Bacon", 2, 5));
+            System.out.println("------");
+
+            // every name with its first letter dropped, with a letter appended, and in upper case
+            List<String> queries = new ArrayList<>(List.of("Bobb", "Charles", "Nobody's Fiend", "xyz", ""));
+            for (String name: names) {
+                queries.add(name.substring(1));
+                queries.add(name + "x");
+                queries.add(name.toUpperCase(Locale.ROOT));
+            }
+            int mismatches = 0;
+            for (String query: queries) {
+                Set<String> expected = new TreeSet<>();
+                for (String name: names)
+                    if (editDistance(query, name) <= SUGGESTION_EDITS) expected.add(name);
+                Set<String> found = new TreeSet<>(index.suggest(query, SUGGESTION_EDITS, names.size()));
+                if (!found.equals(expected)) {
+                    mismatches++;
+                    System.out.println("Suggestions for \"" + query + "\": " + found + ", expected " + expected);
+                }
+            }
+            System.out.println(queries.size() + " queries, " + mismatches + " differ from brute force");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Levenshtein distance between two names, ignoring case, computed over the full table
+     */
+    static int editDistance(String a, String b) {
+        a = a.toLowerCase(Locale.ROOT);
+        b = b.toLowerCase(Locale.ROOT);
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++)
+            for (int j = 1; j <= b.length(); j++)
+                d[i][j] = Math.min(Math.min(d[i - 1][j], d[i][j - 1]) + 1, d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+        return d[a.length()][b.length()];
+    }
+
+    /**
+     * Test function for reading release years from the end of movie titles
+     */
+    static void testParseYear() {
+        String[] titles = {"Toy Story (1995)", "Battle Royale (Batoru Rowaiaru) 2000", "Half Moon Street", "Ash Wednesday",
+                "Devil's Playground", "Apollo 13 (1995)", "Catch-22", "1984", "Movie (19x5)", "(1995)", ""};
+        int[] years = {1995, 2000, 0, 0, 0, 1995, 0, 0, 0, 1995, 0};
+        for (int i = 0; i < titles.length; i++)
+            System.out.println("\"" + titles[i] + "\" - " + parseYear(titles[i]) + (parseYear(titles[i]) == years[i] ? "" : ", expected " + years[i]));
+    }
+
+    /**
+     * Test function for the label-filtered bfs and for dijkstra, on the test network centered on Kevin Bacon
+     * Avoiding "A movie" cuts Bob's direct link to Kevin Bacon, and weighting each step by 1 / shared movies
+     * sends Dartmouth through Alice, who shares two movies with Kevin Bacon, rather than through Bob.
+     */
+    static void testConstrainedPaths() {
+        try {
+            KevinBaconGame game = new KevinBaconGame("inputs/moviesTest.txt", "inputs/actorsTest.txt", "inputs/movie-actorsTest.txt");
+            int avoided = game.movieIndex.id("A movie");
+
+            Graph<String, Integer> tree = GraphLibExtended.bfs(game.network, "Kevin Bacon");
+            Graph<String, Integer> filtered = GraphLibExtended.bfs(game.network, "Kevin Bacon", label -> label.count(movie -> movie != avoided) > 0);
+            System.out.println("The path from Bob: " + GraphLibExtended.getPath(tree, "Bob") + ", avoiding A movie: " + GraphLibExtended.getPath(filtered, "Bob"));
+            System.out.println("Reachable: " + tree.numVertices() + ", avoiding A movie: " + filtered.numVertices());
+            System.out.println("------");
+
+            Graph<String, Double> weighted = GraphLibExtended.dijkstra(game.network, "Kevin Bacon", label -> 1.0 / label.size());
+            for (String actor: List.of("Bob", "Dartmouth (Earl thereof)")) {
+                List<String> path = GraphLibExtended.getPath(weighted, actor);
+                System.out.println("The weighted path from " + actor + ": " + path + ", cost " + weighted.getLabel(actor, path.get(1)));
+            }
+            System.out.println("Reachable with weights: " + weighted.numVertices() + ", Nobody included: " + weighted.hasVertex("Nobody"));
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Test function for the mapped network: build it from the test files in Reverse Cuthill-McKee order, reopen it
+     * from the files, and check that it has the same actors, edges, shared movies and distances as the heap network
+     */
+    static void testMappedGraph() {
+        String MoviesPath = "inputs/moviesTest.txt";
+        String ActorsPath = "inputs/actorsTest.txt";
+        String MovieActorsPath = "inputs/movie-actorsTest.txt";
+
+        try {
+            KevinBaconGame game = new KevinBaconGame(MoviesPath, ActorsPath, MovieActorsPath);
+            Path graphPath = Files.createTempFile("network", ".graph");
+            Files.delete(graphPath);
+            graphPath.toFile().deleteOnExit();
+            Path.of(graphPath + ".game").toFile().deleteOnExit();
+            new MappedKevinBaconGame(MoviesPath, ActorsPath, MovieActorsPath, graphPath.toString(), "rcm");
+            MappedGraph g = new MappedKevinBaconGame(MoviesPath, ActorsPath, MovieActorsPath, graphPath.toString(), null).graph;
+            System.out.println("Reopened: " + g);
+
+            int mismatches = 0;
+            if (g.numVertices() != game.network.numVertices() || g.numEdges() != game.network.numEdges()) mismatches++;
+            for (String actor: game.network.vertices()) {
+                if (!g.hasVertex(actor) || !g.name(g.id(actor)).equals(actor)) mismatches++;
+                for (String other: game.network.outNeighbors(actor))
+                    if (!g.hasEdge(actor, other) || !g.getLabel(actor, other).equals(game.network.getLabel(actor, other))) {
+                        mismatches++;
+                        System.out.println(actor + " & " + other + ": " + (g.hasEdge(actor, other) ? g.getLabel(actor, other) : "no edge") + ", expected " + game.network.getLabel(actor, other));
+                    }
+            }
+            Graph<String, Integer> tree = GraphLibExtended.bfs(game.network, "Kevin Bacon");
+            int[] distances = g.distances(g.id("Kevin Bacon"));
+            for (String actor: game.network.vertices()) {
+                int expected = !tree.hasVertex(actor) ? -1 : actor.equals("Kevin Bacon") ? 0 : GraphLibExtended.getDistance(tree, actor);
+                if (distances[g.id(actor)] != expected) {
+                    mismatches++;
+                    System.out.println(actor + " is " + distances[g.id(actor)] + " from Kevin Bacon, expected " + expected);
+                }
+            }
+            System.out.println(mismatches + " difference(s) from the heap network");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Test function for the vertex orders of the mapped graph: times bfs from every actor for each order
+     * A discarded warm-up pass over all the orders comes first, so that no order pays for the JIT,
+     * then each round runs the orders in a rotated sequence and the median round is reported.
+     */
+    static void testBfsThroughput() {
+        String MoviesPath = "inputs/movies.txt";
+        String ActorsPath = "inputs/actors.txt";
+        String MovieActorsPath = "inputs/movie-actors.txt";
+        String[] orders = {"name", "degree", "bfs", "rcm"};
+        int rounds = 5;
+
+        try {
+            Path graphPath = Files.createTempFile("network", ".graph");
+            Files.delete(graphPath);
+            MappedKevinBaconGame game = new MappedKevinBaconGame(MoviesPath, ActorsPath, MovieActorsPath, graphPath.toString(), null);
+            graphPath.toFile().deleteOnExit();
+            Path.of(graphPath + ".game").toFile().deleteOnExit();
+
+            // a file per order, so each one starts out of the page cache in the same way
+            MappedGraph[] graphs = new MappedGraph[orders.length];
+            for (int i = 0; i < orders.length; i++) {
+                int[] ids = MappedKevinBaconGame.orderVertices(game.graph, orders[i], game.centerId);
+                if (ids == null) ids = IntStream.range(0, game.graph.numVertices()).toArray();
+                Path orderedPath = Files.createTempFile("network-" + orders[i], ".graph");
+                orderedPath.toFile().deleteOnExit();
+                graphs[i] = game.graph.relabel(ids, orderedPath);
+            }
+
+            double[][] rates = new double[orders.length][rounds];
+            for (int round = -1; round < rounds; round++)
+                for (int k = 0; k < orders.length; k++) {
+                    int i = (k + Math.max(round, 0)) % orders.length;
+                    double rate = bfsThroughput(graphs[i]);
+                    if (round >= 0) rates[i][round] = rate;
+                }
+
+            for (int i = 0; i < orders.length; i++) {
+                Arrays.sort(rates[i]);
+                System.out.println(orders[i] + " order: bfs from all " + graphs[i].numVertices() + " actors, median " + (long) rates[i][rounds / 2] + " vertices visited/s (" + (long) rates[i][0] + " to " + (long) rates[i][rounds - 1] + " over " + rounds + " rounds)");
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Run a bfs from every vertex of a mapped graph
+     * @return the number of vertices visited per second
+     */
+    static double bfsThroughput(MappedGraph g) {
+        long visited = 0;
+        long start = System.nanoTime();
+        for (int v = 0; v < g.numVertices(); v++)
+            for (int d: g.distances(v))
+                if (d >= 0) visited++;
+        return visited / ((System.nanoTime() - start) / 1e9);
+    }
 
     public static void main(String[] args) {
 //        testBoundaryConditions();
 //        testSimpleGraph();
+//        testNameIndex();
+//        testParseYear();
+//        testConstrainedPaths();
+//        testMappedGraph();
+//        testBfsThroughput();
         KevinBaconGame.start();
 
 
@@ -0,0 +1,722 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Read-only implementation of the Graph interface, stored in a memory-mapped file instead of on the heap
+ * The graph is undirected: two vertices are linked whenever they belong to a common element (e.g. two actors who
+ * appeared in the same movie), and the label of the edge lists those elements. build() streams the edges of one
+ * vertex at a time to the file, so the edges never have to fit in the heap, neither while building nor afterwards.
+ * Vertices are numbered 0..n-1 (in name order, or a locality-improving order chosen with relabel(), so that
+ * neighbors end up on nearby pages), and the adjacency is kept in compressed sparse row form: the neighbors of vertex
+ * i are targets[offsets[i] .. offsets[i+1]), sorted by id, and edge e is labeled by the element ids
+ * labelItems[labelOffsets[e] .. labelOffsets[e+1]). Every element carries an int tag (e.g. a release year), and every
+ * vertex the ids of the elements it belongs to, so an edge filter can test a label without decoding a single string.
+ * Names are looked up by binary search over a permutation of the ids sorted by (UTF-8 byte) name.
+ * Only the pages that are actually read are brought in, so the heap holds just the small objects that queries return.
+ *
+ * File layout, all ints big-endian:
+ * 	header			MAGIC, VERSION, n, m, #label items, #elements, #memberships
+ * 	byName			[n]
+ * 	offsets			[n+1]	targets [m]			(m counts both directions of every edge)
+ * 	labelOffsets	[m+1]	labelItems [#label items]
+ * 	memberOffsets	[n+1]	members [#memberships]
+ * 	tags			[#elements]
+ * 	vertex names	byte offsets [n+1], then the UTF-8 bytes
+ * 	element names	byte offsets [#elements+1], then the UTF-8 bytes
+ */
+public class MappedGraph implements Graph<String, Set<String>> {
+	static final int MAGIC = 0x4b424731;		// "KBG1"
+	static final int VERSION = 3;
+	static final int HEADER_INTS = 7;
+
+	private final int n, m, numElements;
+	private final IntBuffer byName;
+	private final IntBuffer offsets, targets;
+	private final IntBuffer labelOffsets, labelItems;
+	private final IntBuffer memberOffsets, members;
+	private final IntBuffer tags;
+	private final StringTable names, elements;
+
+	/**
+	 * Map a graph file written by build() or relabel()
+	 * @param path the graph file
+	 */
+	public static MappedGraph open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new MappedGraph(channel);
+		}
+	}
+
+	/**
+	 * Build the graph linking the vertices that share an element, write it to a file, and map it
+	 * The names (from the caller, plus their UTF-8 bytes while sorting them) and the memberships (as int arrays) are
+	 * held in memory, so the heap needed grows with the input; the edges, by far the largest part, are generated one
+	 * vertex at a time and streamed to temporary files next to the graph file, then concatenated into it.
+	 * @param vertexNames names of the vertices (assumed distinct), by the ids used in memberships; the graph
+	 * 					renumbers them in name order
+	 * @param elementNames names of the elements, by id
+	 * @param elementTags tag of each element, by id
+	 * @param memberships (element id, vertex id) pairs, flattened, in any order; duplicates are dropped
+	 * @param count number of pairs in memberships
+	 * @param path the graph file, overwritten if it exists
+	 * @return the mapped graph
+	 */
+	public static MappedGraph build(List<String> vertexNames, List<String> elementNames, int[] elementTags,
+									int[] memberships, int count, Path path) throws IOException {
+		int n = vertexNames.size(), numElements = elementNames.size();
+
+		// vertices are numbered in name order, so byName is the identity
+		int[] sorted = sortedByName(vertexNames);
+		int[] rank = new int[n];
+		for (int i = 0; i < n; i++) rank[sorted[i]] = i;
+
+		// vertices of each element, then elements of each vertex, both sorted and without duplicates
+		int[] elementKeys = new int[count], vertexKeys = new int[count];
+		for (int i = 0; i < count; i++) {
+			elementKeys[i] = memberships[2 * i];
+			vertexKeys[i] = rank[memberships[2 * i + 1]];
+		}
+		int[][] cast = group(elementKeys, vertexKeys, count, numElements);
+		int[] castOffsets = cast[0], castVertices = cast[1];
+		int numMemberships = castOffsets[numElements];
+		for (int e = 0; e < numElements; e++)
+			for (int k = castOffsets[e]; k < castOffsets[e + 1]; k++) elementKeys[k] = e;
+		int[][] membership = group(castVertices, elementKeys, numMemberships, n);
+		int[] memberOffsets = membership[0], memberElements = membership[1];
+
+		Path directory = path.toAbsolutePath().getParent();
+		Path targetsFile = Files.createTempFile(directory, "targets", ".tmp");
+		Path labelOffsetsFile = Files.createTempFile(directory, "labelOffsets", ".tmp");
+		Path labelItemsFile = Files.createTempFile(directory, "labelItems", ".tmp");
+		try {
+			int[] offsets = new int[n + 1];
+			long m = 0, items = 0;
+			try (DataOutputStream targetsOut = stream(targetsFile);
+				 DataOutputStream labelOffsetsOut = stream(labelOffsetsFile);
+				 DataOutputStream labelItemsOut = stream(labelItemsFile)) {
+				labelOffsetsOut.writeInt(0);
+				long[] buffer = new long[16];
+				for (int u = 0; u < n; u++) {
+					// every (neighbor, shared element) pair of u, sorted by neighbor then element
+					int size = 0;
+					for (int k = memberOffsets[u]; k < memberOffsets[u + 1]; k++) {
+						int e = memberElements[k];
+						for (int j = castOffsets[e]; j < castOffsets[e + 1]; j++) {
+							int v = castVertices[j];
+							if (v == u) continue;
+							if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+							buffer[size++] = (long) v << 32 | e;
+						}
+					}
+					Arrays.sort(buffer, 0, size);
+
+					for (int k = 0; k < size; ) {
+						int v = (int) (buffer[k] >>> 32);
+						targetsOut.writeInt(v);
+						m++;
+						for (; k < size && (int) (buffer[k] >>> 32) == v; k++) {
+							labelItemsOut.writeInt((int) buffer[k]);
+							items++;
+						}
+						labelOffsetsOut.writeInt((int) items);
+					}
+					if (m > Integer.MAX_VALUE || items > Integer.MAX_VALUE) throw new IOException("Too many edges for a graph file.");
+					offsets[u + 1] = (int) m;
+				}
+			}
+
+			try (DataOutputStream output = stream(path)) {
+				for (int x: new int[]{MAGIC, VERSION, n, (int) m, (int) items, numElements, numMemberships}) output.writeInt(x);
+				for (int i = 0; i < n; i++) output.writeInt(i);
+				writeInts(output, offsets);
+				Files.copy(targetsFile, output);
+				Files.copy(labelOffsetsFile, output);
+				Files.copy(labelItemsFile, output);
+				writeInts(output, memberOffsets);
+				writeInts(output, memberElements);
+				writeInts(output, Arrays.copyOf(elementTags, numElements));
+				writeStrings(output, n, i -> vertexNames.get(sorted[i]).getBytes(StandardCharsets.UTF_8));
+				writeStrings(output, numElements, i -> elementNames.get(i).getBytes(StandardCharsets.UTF_8));
+			}
+		} finally {
+			Files.deleteIfExists(targetsFile);
+			Files.deleteIfExists(labelOffsetsFile);
+			Files.deleteIfExists(labelItemsFile);
+		}
+
+		return open(path);
+	}
+
+	/**
+	 * Write a copy of the graph with its vertices renumbered, straight from the mapped file, and map it
+	 * @param order the old id of every new id, e.g. from reverseCuthillMcKeeOrder(); a permutation of 0..n-1
+	 * @param path the new graph file, overwritten if it exists (must not be this graph's file)
+	 * @return the mapped copy
+	 */
+	public MappedGraph relabel(int[] order, Path path) throws IOException {
+		if (order.length != n) throw new IllegalArgumentException("The order must list every vertex once.");
+		int[] newId = new int[n];
+		Arrays.fill(newId, -1);
+		for (int i = 0; i < n; i++) {
+			if (order[i] < 0 || order[i] >= n || newId[order[i]] >= 0) throw new IllegalArgumentException("The order must list every vertex once.");
+			newId[order[i]] = i;
+		}
+
+		try (DataOutputStream output = stream(path)) {
+			for (int x: new int[]{MAGIC, VERSION, n, m, labelItems.limit(), numElements, members.limit()}) output.writeInt(x);
+			for (int k = 0; k < n; k++) output.writeInt(newId[byName.get(k)]);
+
+			int offset = 0;
+			output.writeInt(offset);
+			for (int i = 0; i < n; i++) output.writeInt(offset += degree(order[i]));
+
+			// the edges of each vertex are re-sorted by new id; each pass over them writes one section
+			long[] edges = new long[16];
+			for (int i = 0; i < n; i++) {
+				int size = renumberedEdges(order[i], newId, edges = grow(edges, degree(order[i])));
+				for (int k = 0; k < size; k++) output.writeInt((int) (edges[k] >>> 32));
+			}
+			offset = 0;
+			output.writeInt(offset);
+			for (int i = 0; i < n; i++) {
+				int size = renumberedEdges(order[i], newId, edges);
+				for (int k = 0; k < size; k++) output.writeInt(offset += labelSize((int) edges[k]));
+			}
+			for (int i = 0; i < n; i++) {
+				int size = renumberedEdges(order[i], newId, edges);
+				for (int k = 0; k < size; k++) {
+					int e = (int) edges[k];
+					for (int j = labelOffsets.get(e); j < labelOffsets.get(e + 1); j++) output.writeInt(labelItems.get(j));
+				}
+			}
+
+			offset = 0;
+			output.writeInt(offset);
+			for (int i = 0; i < n; i++) output.writeInt(offset += elementCount(order[i]));
+			for (int i = 0; i < n; i++)
+				for (int k = memberOffsets.get(order[i]); k < memberOffsets.get(order[i] + 1); k++) output.writeInt(members.get(k));
+			for (int k = 0; k < numElements; k++) output.writeInt(tags.get(k));
+
+			writeStrings(output, n, i -> names.bytes(order[i]));
+			writeStrings(output, numElements, elements::bytes);
+		}
+
+		return open(path);
+	}
+
+	/**
+	 * Map the sections of an open graph file
+	 */
+	private MappedGraph(FileChannel channel) throws IOException {
+		IntBuffer header = map(channel, 0, HEADER_INTS);
+		if (header.get(0) != MAGIC || header.get(1) != VERSION) throw new IOException("Not a graph file.");
+		n = header.get(2);
+		m = header.get(3);
+		int numItems = header.get(4), numMemberships = header.get(6);
+		numElements = header.get(5);
+
+		long position = 4L * HEADER_INTS;
+		byName = map(channel, position, n);						position += 4L * n;
+		offsets = map(channel, position, n + 1);				position += 4L * (n + 1);
+		targets = map(channel, position, m);					position += 4L * m;
+		labelOffsets = map(channel, position, m + 1);			position += 4L * (m + 1);
+		labelItems = map(channel, position, numItems);			position += 4L * numItems;
+		memberOffsets = map(channel, position, n + 1);			position += 4L * (n + 1);
+		members = map(channel, position, numMemberships);		position += 4L * numMemberships;
+		tags = map(channel, position, numElements);				position += 4L * numElements;
+		names = new StringTable(channel, position, n);			position += names.byteSize();
+		elements = new StringTable(channel, position, numElements);
+	}
+
+	public int numVertices() {
+		return n;
+	}
+
+	/**
+	 * The number of edges, counting both directions of an undirected edge like AdjacencyMapGraph does
+	 */
+	public int numEdges() {
+		return m;
+	}
+
+	public Iterable<String> vertices() {
+		return () -> new Iterator<>() {
+			int i = 0;
+			public boolean hasNext() { return i < n; }
+			public String next() {
+				if (i >= n) throw new NoSuchElementException();
+				return names.get(i++);
+			}
+		};
+	}
+
+	public boolean hasVertex(String v) {
+		return id(v) >= 0;
+	}
+
+	public int outDegree(String v) {
+		return degree(existingId(v));
+	}
+
+	public int inDegree(String v) {
+		return degree(existingId(v));
+	}
+
+	public Iterable<String> outNeighbors(String v) {
+		int u = existingId(v);
+		return () -> new Iterator<>() {
+			int e = edgeStart(u);
+			public boolean hasNext() { return e < edgeEnd(u); }
+			public String next() {
+				if (e >= edgeEnd(u)) throw new NoSuchElementException();
+				return names.get(targets.get(e++));
+			}
+		};
+	}
+
+	public Iterable<String> inNeighbors(String v) {
+		return outNeighbors(v);
+	}
+
+	public boolean hasEdge(String u, String v) {
+		return edge(existingId(u), id(v)) >= 0;
+	}
+
+	/**
+	 * The label on the edge from u to v, as a read-only view of its element names, or null if there is no such edge
+	 */
+	public Set<String> getLabel(String u, String v) {
+		int e = edge(existingId(u), id(v));
+		if (e < 0) return null;
+
+		return new AbstractSet<>() {
+			public int size() { return labelSize(e); }
+			public Iterator<String> iterator() {
+				return new Iterator<>() {
+					int k = 0;
+					public boolean hasNext() { return k < labelSize(e); }
+					public String next() {
+						if (k >= labelSize(e)) throw new NoSuchElementException();
+						return elementName(labelElement(e, k++));
+					}
+				};
+			}
+		};
+	}
+
+	public void insertVertex(String v) {
+		throw new UnsupportedOperationException("MappedGraph is read-only.");
+	}
+
+	public void insertDirected(String u, String v, Set<String> e) {
+		throw new UnsupportedOperationException("MappedGraph is read-only.");
+	}
+
+	public void insertUndirected(String u, String v, Set<String> e) {
+		throw new UnsupportedOperationException("MappedGraph is read-only.");
+	}
+
+	public void removeVertex(String v) {
+		throw new UnsupportedOperationException("MappedGraph is read-only.");
+	}
+
+	public void removeDirected(String u, String v) {
+		throw new UnsupportedOperationException("MappedGraph is read-only.");
+	}
+
+	public void removeUndirected(String u, String v) {
+		throw new UnsupportedOperationException("MappedGraph is read-only.");
+	}
+
+	/**
+	 * Returns a short summary, since printing every vertex of a graph that doesn't fit in the heap is not an option.
+	 */
+	public String toString() {
+		return "MappedGraph: " + n + " vertices, " + m + " edges";
+	}
+
+	// Below are the id-level accessors, which don't allocate
+
+	/**
+	 * The id of a vertex, found by binary search over the sorted names, or -1 if it isn't in the graph
+	 */
+	public int id(String v) {
+		byte[] key = v.getBytes(StandardCharsets.UTF_8);
+		int lo = 0, hi = n - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = names.compareTo(byName.get(mid), key);
+			if (c < 0) lo = mid + 1;
+			else if (c > 0) hi = mid - 1;
+			else return byName.get(mid);
+		}
+		return -1;
+	}
+
+	/** The name of the vertex with the given id */
+	public String name(int id) {
+		return names.get(id);
+	}
+
+	public int degree(int u) {
+		return offsets.get(u + 1) - offsets.get(u);
+	}
+
+	/** The edges of vertex u are the ones numbered edgeStart(u) .. edgeEnd(u)-1 */
+	public int edgeStart(int u) {
+		return offsets.get(u);
+	}
+
+	public int edgeEnd(int u) {
+		return offsets.get(u + 1);
+	}
+
+	/** The vertex edge e leads to */
+	public int target(int e) {
+		return targets.get(e);
+	}
+
+	/**
+	 * The edge from u to v, found by binary search, or -1 if there is none
+	 */
+	public int edge(int u, int v) {
+		if (v < 0) return -1;
+		int lo = offsets.get(u), hi = offsets.get(u + 1) - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int t = targets.get(mid);
+			if (t < v) lo = mid + 1;
+			else if (t > v) hi = mid - 1;
+			else return mid;
+		}
+		return -1;
+	}
+
+	/** The number of elements on the label of edge e */
+	public int labelSize(int e) {
+		return labelOffsets.get(e + 1) - labelOffsets.get(e);
+	}
+
+	/** The id of the k-th element on the label of edge e, in increasing order */
+	public int labelElement(int e, int k) {
+		return labelItems.get(labelOffsets.get(e) + k);
+	}
+
+	public int numElements() {
+		return numElements;
+	}
+
+	public String elementName(int element) {
+		return elements.get(element);
+	}
+
+	public int elementTag(int element) {
+		return tags.get(element);
+	}
+
+	/** The number of elements vertex u belongs to, including those it shares with no other vertex */
+	public int elementCount(int u) {
+		return memberOffsets.get(u + 1) - memberOffsets.get(u);
+	}
+
+	/**
+	 * Bfs over vertex ids, reading the adjacency straight from the mapped file without building a spanning tree
+	 * @param source id of the vertex where bfs starts
+	 * @return the distance of every vertex from the source, indexed by id, -1 if unreachable
+	 */
+	public int[] distances(int source) {
+		int[] dist = new int[n];
+		bfs(source, null, dist, null);
+		return dist;
+	}
+
+	/**
+	 * Bfs over vertex ids, only following the edges that pass the filter
+	 * @param source id of the vertex where bfs starts
+	 * @param edgeFilter tests an edge id, or null to follow every edge
+	 * @param dist filled with the distance of every vertex from the source, -1 if unreachable
+	 * @param parent filled with the vertex each one was reached from, -1 for the source and unreachable ones; may be null
+	 */
+	public void bfs(int source, IntPredicate edgeFilter, int[] dist, int[] parent) {
+		int[] queue = new int[n];
+		Arrays.fill(dist, -1);
+		if (parent != null) Arrays.fill(parent, -1);
+		int head = 0, tail = 0;
+		dist[source] = 0;
+		queue[tail++] = source;
+
+		while (head < tail) {
+			int v = queue[head++];
+			for (int e = offsets.get(v), end = offsets.get(v + 1); e < end; e++) {
+				int neighbor = targets.get(e);
+				if (dist[neighbor] < 0 && (edgeFilter == null || edgeFilter.test(e))) {
+					dist[neighbor] = dist[v] + 1;
+					if (parent != null) parent[neighbor] = v;
+					queue[tail++] = neighbor;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dijkstra over vertex ids, like GraphLibExtended.dijkstra
+	 * @param source id of the vertex where the search starts
+	 * @param weight the non-negative cost of an edge id, or a negative number to skip the edge
+	 * @param dist filled with the cost of the cheapest path from the source, GraphLibExtended.INF if unreachable
+	 * @param parent filled with the vertex each one was reached from, -1 for the source and unreachable ones
+	 */
+	public void dijkstra(int source, IntToDoubleFunction weight, double[] dist, int[] parent) {
+		Arrays.fill(dist, GraphLibExtended.INF);
+		Arrays.fill(parent, -1);
+		boolean[] done = new boolean[n];
+		MinHeap frontier = new MinHeap(16);
+		dist[source] = 0;
+		frontier.push(0, source);
+
+		while (!frontier.isEmpty()) {
+			int v = (int) frontier.poll();
+			// stale entry, v was settled with a smaller cost
+			if (done[v]) continue;
+			done[v] = true;
+
+			for (int e = offsets.get(v), end = offsets.get(v + 1); e < end; e++) {
+				int neighbor = targets.get(e);
+				if (done[neighbor]) continue;
+				double w = weight.applyAsDouble(e);
+				if (w < 0) continue;
+				if (dist[v] + w < dist[neighbor]) {
+					dist[neighbor] = dist[v] + w;
+					parent[neighbor] = v;
+					frontier.push(dist[neighbor], neighbor);
+				}
+			}
+		}
+	}
+
+	// Below are vertex orders for relabel()
+
+	/**
+	 * The ids in decreasing order by degree, ties in id order
+	 */
+	public int[] degreeOrder() {
+		long[] keys = new long[n];
+		for (int u = 0; u < n; u++) keys[u] = (long) (Integer.MAX_VALUE - degree(u)) << 32 | u;
+		Arrays.sort(keys);
+
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) order[i] = (int) keys[i];
+		return order;
+	}
+
+	/**
+	 * The ids in the order a bfs from the source visits them, so that neighbors end up close to each other
+	 * Vertices that the source can't reach follow, in bfs order from each of their components
+	 */
+	public int[] bfsOrder(int source) {
+		int[] starts = new int[n + 1];
+		starts[0] = source;
+		for (int u = 0; u < n; u++) starts[u + 1] = u;
+
+		return bfsOrder(starts, false);
+	}
+
+	/**
+	 * The ids in Reverse Cuthill-McKee order: a bfs from a low degree vertex of each component,
+	 * visiting the neighbors of a vertex by increasing degree, then reversed. This keeps the ids of
+	 * neighbors close together, i.e. narrows the bandwidth of the adjacency matrix.
+	 */
+	public int[] reverseCuthillMcKeeOrder() {
+		long[] keys = new long[n];
+		for (int u = 0; u < n; u++) keys[u] = (long) degree(u) << 32 | u;
+		Arrays.sort(keys);
+		int[] starts = new int[n];
+		for (int i = 0; i < n; i++) starts[i] = (int) keys[i];
+
+		int[] order = bfsOrder(starts, true);
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+		return order;
+	}
+
+	/**
+	 * Visit every vertex by bfs, starting a new search from the first unvisited vertex of starts each time
+	 * @param byDegree whether to visit the neighbors of a vertex by increasing degree, or by id
+	 */
+	private int[] bfsOrder(int[] starts, boolean byDegree) {
+		int[] order = new int[n];
+		boolean[] visited = new boolean[n];
+		long[] next = new long[16];
+		int tail = 0;
+
+		for (int start: starts) {
+			if (visited[start]) continue;
+			visited[start] = true;
+			int head = tail;
+			order[tail++] = start;
+			while (head < tail) {
+				int v = order[head++];
+				int count = 0;
+				next = grow(next, degree(v));
+				for (int e = offsets.get(v), end = offsets.get(v + 1); e < end; e++) {
+					int neighbor = targets.get(e);
+					if (visited[neighbor]) continue;
+					visited[neighbor] = true;
+					next[count++] = byDegree ? (long) degree(neighbor) << 32 | neighbor : neighbor;
+				}
+				if (byDegree) Arrays.sort(next, 0, count);
+				for (int k = 0; k < count; k++) order[tail++] = (int) next[k];
+			}
+		}
+
+		return order;
+	}
+
+	/**
+	 * The id of a vertex that is assumed to be in the graph, mirroring the NullPointerException of AdjacencyMapGraph
+	 */
+	private int existingId(String v) {
+		int i = id(v);
+		if (i < 0) throw new NoSuchElementException("Vertex not found: " + v);
+		return i;
+	}
+
+	/**
+	 * Fill edges with (new target id, edge) pairs of vertex u, sorted by new target id
+	 * @return the number of pairs
+	 */
+	private int renumberedEdges(int u, int[] newId, long[] edges) {
+		int size = 0;
+		for (int e = offsets.get(u), end = offsets.get(u + 1); e < end; e++)
+			edges[size++] = (long) newId[targets.get(e)] << 32 | e;
+		Arrays.sort(edges, 0, size);
+		return size;
+	}
+
+	private static long[] grow(long[] buffer, int size) {
+		return size <= buffer.length ? buffer : Arrays.copyOf(buffer, Math.max(size, 2 * buffer.length));
+	}
+
+	/**
+	 * Group (key, value) pairs by key with a counting sort
+	 * @return {offsets [numKeys+1], values}, the values of each key being sorted and without duplicates
+	 */
+	private static int[][] group(int[] keys, int[] values, int count, int numKeys) {
+		int[] offsets = new int[numKeys + 1];
+		for (int i = 0; i < count; i++) offsets[keys[i] + 1]++;
+		for (int k = 0; k < numKeys; k++) offsets[k + 1] += offsets[k];
+		int[] grouped = new int[count], fill = Arrays.copyOf(offsets, numKeys);
+		for (int i = 0; i < count; i++) grouped[fill[keys[i]]++] = values[i];
+
+		// sort each group and squeeze out the duplicates in place
+		int size = 0;
+		for (int k = 0; k < numKeys; k++) {
+			int start = offsets[k], end = offsets[k + 1];
+			Arrays.sort(grouped, start, end);
+			offsets[k] = size;
+			for (int i = start; i < end; i++)
+				if (i == start || grouped[i] != grouped[i - 1]) grouped[size++] = grouped[i];
+		}
+		offsets[numKeys] = size;
+
+		return new int[][]{offsets, Arrays.copyOf(grouped, size)};
+	}
+
+	/**
+	 * The ids 0..count-1 sorted by their (UTF-8 byte) names, each encoded once rather than in every comparison
+	 */
+	private static int[] sortedByName(List<String> strings) {
+		int count = strings.size();
+		byte[][] names = new byte[count][];
+		for (int i = 0; i < count; i++) names[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+		Integer[] ids = new Integer[count];
+		for (int i = 0; i < count; i++) ids[i] = i;
+		Arrays.sort(ids, (a, b) -> Arrays.compareUnsigned(names[a], names[b]));
+
+		int[] sorted = new int[count];
+		for (int i = 0; i < count; i++) sorted[i] = ids[i];
+		return sorted;
+	}
+
+	private static DataOutputStream stream(Path path) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile())));
+	}
+
+	private static void writeInts(DataOutputStream output, int[] section) throws IOException {
+		for (int x: section) output.writeInt(x);
+	}
+
+	/**
+	 * Write a string table in two passes over the strings, so they never need to be held together
+	 */
+	private static void writeStrings(DataOutputStream output, int count, IntFunction<byte[]> strings) throws IOException {
+		int offset = 0;
+		output.writeInt(offset);
+		for (int i = 0; i < count; i++) output.writeInt(offset += strings.apply(i).length);
+		for (int i = 0; i < count; i++) output.write(strings.apply(i));
+	}
+
+	/**
+	 * Map count ints starting at a byte position of the file
+	 */
+	private static IntBuffer map(FileChannel channel, long position, int count) throws IOException {
+		return map(channel, position, 4L * count).asIntBuffer();
+	}
+
+	private static ByteBuffer map(FileChannel channel, long position, long size) throws IOException {
+		if (size > Integer.MAX_VALUE) throw new IOException("Graph file section larger than 2GB.");
+		return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+	}
+
+	/**
+	 * Mapped table of UTF-8 strings: byte offsets [count+1], then the bytes
+	 */
+	private static class StringTable {
+		final IntBuffer offsets;
+		final ByteBuffer bytes;
+		final int count;
+
+		StringTable(FileChannel channel, long position, int count) throws IOException {
+			this.count = count;
+			offsets = map(channel, position, count + 1);
+			bytes = map(channel, position + 4L * (count + 1), (long) offsets.get(count));
+		}
+
+		long byteSize() {
+			return 4L * (count + 1) + offsets.get(count);
+		}
+
+		byte[] bytes(int i) {
+			int start = offsets.get(i);
+			byte[] b = new byte[offsets.get(i + 1) - start];
+			bytes.get(start, b);
+			return b;
+		}
+
+		String get(int i) {
+			return new String(bytes(i), StandardCharsets.UTF_8);
+		}
+
+		/** Compares string i with the key, as unsigned bytes */
+		int compareTo(int i, byte[] key) {
+			int start = offsets.get(i), length = offsets.get(i + 1) - start;
+			for (int j = 0; j < length && j < key.length; j++) {
+				int c = Integer.compare(bytes.get(start + j) & 0xff, key[j] & 0xff);
+				if (c != 0) return c;
+			}
+			return Integer.compare(length, key.length);
+		}
+	}
+}
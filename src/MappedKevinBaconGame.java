@@ -0,0 +1,472 @@
+import java.io.*;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * Kevin Bacon Game over a memory-mapped network, for datasets whose network doesn't fit in the heap
+ * The first run streams the inputs into a graph file (see MappedGraph.build), then computes the average separations,
+ * the sorted actor lists and the name indices once and stores them in a game file next to it (graph path + ".game").
+ * Later runs map both files and don't read the inputs at all; delete the files to rebuild them from new inputs.
+ * Actors are addressed by vertex id and movies by element id, so besides the mapped files the heap holds the state
+ * of the current center (the distance and parent of every actor, and the actors sorted by separation), a few ints per
+ * actor, and the arrays and queue of the y or w query being answered, which grow with the number of actors as well.
+ *
+ * Game file layout, big-endian:
+ * 	header				MAGIC, VERSION, n, id of the default center (-1 if there are no actors)
+ * 	avgSeparation		[n] doubles, by id
+ * 	byAvgSeparation		[n] ids
+ * 	byDegree			[n] ids
+ * 	actor index, then movie index (see NameIndex.write)
+ */
+public class MappedKevinBaconGame extends KevinBaconGame {
+    static final int MAGIC = 0x4b424753;		// "KBGS"
+    static final int VERSION = 1;
+    static final int HEADER_INTS = 4;
+
+    MappedGraph graph;
+    // precomputed per actor, mapped from the game file
+    DoubleBuffer avgSeparations;
+    IntBuffer actorsByAvgSeparation;
+    IntBuffer actorsByDegree;
+    // state of the current center, by vertex id
+    int centerId;
+    int[] distances;
+    int[] parents;
+    int[] actorsBySeparation;
+
+
+    /**
+     * Open the mapped network, building it from the input files first if it doesn't exist yet
+     * @param moviesPath path to the movies file
+     * @param actorsPath path to the actors file
+     * @param movieActorsPath path to the movie-actor file
+     * @param graphPath path of the graph file; the game file is graphPath + ".game"
+     * @param vertexOrder how to number the vertices when building (see orderVertices), or null for name order
+     */
+    public MappedKevinBaconGame(String moviesPath, String actorsPath, String movieActorsPath, String graphPath, String vertexOrder) throws Exception {
+        Path graphFile = Path.of(graphPath), gameFile = Path.of(graphPath + ".game");
+        if (!Files.exists(graphFile) || !Files.exists(gameFile)) build(moviesPath, actorsPath, movieActorsPath, graphFile, gameFile, vertexOrder);
+        else if (vertexOrder != null) System.out.println("Ignoring vertex order " + vertexOrder + ": " + graphFile + " is already built, delete it to build it in another order");
+        open(graphFile, gameFile);
+
+        int n = graph.numVertices();
+        distances = new int[n];
+        parents = new int[n];
+        Arrays.fill(distances, -1);
+        actorsBySeparation = new int[0];
+        changeCenter(center, true);
+    }
+
+    /**
+     * Stream the input files into the graph file, then compute and write the game file
+     * Unlike later runs, this holds the names, the file-id maps, the movie-actor pairs and the name indices on the heap,
+     * so the heap it needs grows with the input; only the edges are never held together.
+     */
+    static void build(String moviesPath, String actorsPath, String movieActorsPath, Path graphFile, Path gameFile, String vertexOrder) throws Exception {
+        Map<String, Integer> movies = new HashMap<>();		// movie file id -> element id
+        Map<String, Integer> titleIds = new HashMap<>();
+        List<String> titles = new ArrayList<>();
+        int[] years = new int[16];
+        Map<String, Integer> actors = new HashMap<>();		// actor file id -> vertex id
+        Map<String, Integer> nameIds = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int[] memberships = new int[16];
+        int count = 0;
+
+        String line;
+
+        // read in the movies, tagged with their release year (0 if the title has none)
+        BufferedReader input = new BufferedReader(new FileReader(moviesPath));
+        while ((line = input.readLine()) != null) {
+            String[] tks = line.split("\\|");
+            Integer id = titleIds.get(tks[1]);
+            if (id == null) {
+                id = titles.size();
+                titleIds.put(tks[1], id);
+                titles.add(tks[1]);
+                if (id == years.length) years = Arrays.copyOf(years, 2 * id);
+                years[id] = parseYear(tks[1]);
+            }
+            movies.put(tks[0], id);
+        }
+        input.close();
+
+        // read in the actors
+        input = new BufferedReader(new FileReader(actorsPath));
+        while ((line = input.readLine()) != null) {
+            String[] tks = line.split("\\|");
+            Integer id = nameIds.get(tks[1]);
+            if (id == null) {
+                id = names.size();
+                nameIds.put(tks[1], id);
+                names.add(tks[1]);
+            }
+            actors.put(tks[0], id);
+        }
+        input.close();
+
+        // the default center is Kevin Bacon if he is one of the actors, otherwise the first actor
+        String center = nameIds.containsKey("Kevin Bacon") ? "Kevin Bacon" : names.isEmpty() ? null : names.get(0);
+
+        // process the movie-actor records, filtering out unknown ones
+        input = new BufferedReader(new FileReader(movieActorsPath));
+        while ((line = input.readLine()) != null) {
+            String[] tks = line.split("\\|");
+            if (movies.get(tks[0]) != null && actors.get(tks[1]) != null) {
+                if (2 * count == memberships.length) memberships = Arrays.copyOf(memberships, 4 * count);
+                memberships[2 * count] = movies.get(tks[0]);
+                memberships[2 * count + 1] = actors.get(tks[1]);
+                count++;
+            }
+        }
+        input.close();
+
+        // build in name order, then renumber into the requested order if there is one
+        Path unordered = graphFile.resolveSibling(graphFile.getFileName() + ".unordered");
+        MappedGraph unorderedGraph = MappedGraph.build(names, titles, years, memberships, count, unordered);
+        int[] order = orderVertices(unorderedGraph, vertexOrder, center == null ? -1 : unorderedGraph.id(center));
+        if (order == null) Files.move(unordered, graphFile, StandardCopyOption.REPLACE_EXISTING);
+        else {
+            unorderedGraph.relabel(order, graphFile);
+            Files.delete(unordered);
+        }
+        MappedGraph graph = MappedGraph.open(graphFile);
+
+        // compute the average separations by bfs over ids
+        int n = graph.numVertices();
+        double[] avgSeparation = new double[n];
+        for (int u = 0; u < n; u++) {
+            if (n > 10) {
+                int progress = (u + 1)/(n/10);
+                if ((u + 1)%(n/10) == 0) System.out.print("\b\b\b\b\b\b\b\b\b\b\b\b\bLoading..." + 10*progress + "%");
+            }
+            double sum = 0;
+            int vCnt = 0;
+            for (int d: graph.distances(u))
+                if (d > 0) {
+                    sum += d;
+                    vCnt++;
+                }
+            avgSeparation[u] = vCnt == 0 ? GraphLibExtended.INF : sum/vCnt;
+        }
+        if (n > 10) System.out.println();
+        Integer[] byAvgSeparation = new Integer[n];
+        for (int u = 0; u < n; u++) byAvgSeparation[u] = u;
+        Arrays.sort(byAvgSeparation, Comparator.comparingDouble(u -> avgSeparation[u]));
+
+        NameIndex actorIndex = new NameIndex(graph.vertices());
+        NameIndex movieIndex = new NameIndex(() -> IntStream.range(0, graph.numElements()).mapToObj(graph::elementName).iterator());
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(gameFile.toFile())))) {
+            for (int x: new int[]{MAGIC, VERSION, n, center == null ? -1 : graph.id(center)}) output.writeInt(x);
+            for (double x: avgSeparation) output.writeDouble(x);
+            for (int x: byAvgSeparation) output.writeInt(x);
+            for (int x: graph.degreeOrder()) output.writeInt(x);
+            actorIndex.write(output);
+            movieIndex.write(output);
+        }
+    }
+
+    /**
+     * Map the graph file and the game file
+     */
+    void open(Path graphFile, Path gameFile) throws IOException {
+        graph = MappedGraph.open(graphFile);
+        int n = graph.numVertices();
+
+        try (FileChannel channel = FileChannel.open(gameFile, StandardOpenOption.READ)) {
+            IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4 * HEADER_INTS).asIntBuffer();
+            if (header.get(0) != MAGIC || header.get(1) != VERSION) throw new IOException("Not a game file.");
+            if (header.get(2) != n) throw new IOException("The game file doesn't match the graph file.");
+            center = header.get(3) < 0 ? null : graph.name(header.get(3));
+
+            long position = 4 * HEADER_INTS;
+            avgSeparations = channel.map(FileChannel.MapMode.READ_ONLY, position, 8L * n).asDoubleBuffer();		position += 8L * n;
+            actorsByAvgSeparation = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * n).asIntBuffer();	position += 4L * n;
+            actorsByDegree = channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * n).asIntBuffer();			position += 4L * n;
+            actorIndex = NameIndex.map(channel, position);															position += actorIndex.byteSize();
+            movieIndex = NameIndex.map(channel, position);
+        }
+    }
+
+    /**
+     * Order the vertices of a mapped graph for relabeling it
+     * @param order "name" (or null), "degree" (decreasing), "bfs" (from the source) or "rcm" (Reverse Cuthill-McKee)
+     * @param source id of the vertex a bfs order starts from
+     * @return the old id of every new id, or null to keep name order
+     */
+    static int[] orderVertices(MappedGraph g, String order, int source) throws Exception {
+        if (order == null) return null;
+        switch (order) {
+            case "name": return null;
+            case "degree": return g.degreeOrder();
+            case "bfs":
+                if (source >= 0) return g.bfsOrder(source);
+                System.out.println("No center to start the bfs order from, keeping name order");
+                return null;
+            case "rcm": return g.reverseCuthillMcKeeOrder();
+            default: throw new Exception("Unknown vertex order: " + order);
+        }
+    }
+
+    // Below are the commands, over vertex and element ids
+
+    @Override
+    void listActorsByAverageSeparation(int count) {
+        int n = graph.numVertices();
+        int actualCount = Math.min(Math.abs(count), n);
+
+        System.out.println("The top " + actualCount + " actor(s) with " + (count >= 0 ? "lowest" : "highest") + " average separation");
+        for (int i = 0; i < actualCount; i++) {
+            int u = actorsByAvgSeparation.get(count >= 0 ? i : n - 1 - i);
+            double avg = avgSeparations.get(u);
+            System.out.println(graph.name(u) + " - " + (avg == Double.MAX_VALUE ? "isolated" : avg));
+        }
+        System.out.println();
+    }
+
+    @Override
+    void listActorsByDegree(int low, int high) {
+        System.out.println("Actor(s) with degree between " + low + " to " + high + ":");
+        if (low >= high) return;
+
+        for (int i = 0; i < graph.numVertices(); i++) {
+            int u = actorsByDegree.get(i);
+            if (graph.degree(u) >= low && graph.degree(u) <= high)
+                System.out.println(graph.name(u) + " - " + graph.degree(u));
+        }
+    }
+
+    @Override
+    void listActorsByDegree() {
+        System.out.println("Actor(s) sorted by degree:");
+
+        for (int i = 0; i < graph.numVertices(); i++) {
+            int u = actorsByDegree.get(i);
+            System.out.println(graph.name(u) + " - " + graph.degree(u));
+        }
+    }
+
+    @Override
+    void listActorsByFilmCount(int count) {
+        Iterable<Integer> actors = () -> IntStream.range(0, graph.numVertices()).filter(u -> graph.elementCount(u) > 0).iterator();
+        List<Integer> selected = GraphLibExtended.topK(actors, count, graph::elementCount, Comparator.comparing(graph::name));
+        System.out.println("The top " + selected.size() + " actor(s) by number of movies:");
+        for (int u: selected)
+            System.out.println(graph.name(u) + " - " + graph.elementCount(u));
+        System.out.println();
+    }
+
+    /**
+     * Like GraphLibExtended.topKEdges, but over edge ids packed with their smaller end as (actor << 32 | edge)
+     */
+    @Override
+    void listTopCollaborators(int count) {
+        Iterable<Long> edges = () -> IntStream.range(0, graph.numVertices()).boxed()
+                .flatMapToLong(u -> IntStream.range(graph.edgeStart(u), graph.edgeEnd(u)).filter(e -> graph.target(e) > u).mapToLong(e -> (long) u << 32 | e))
+                .iterator();
+        // decode each pair once per comparison, then compare the names in order
+        Comparator<Long> byNames = Comparator.comparing(this::pairNames, Arrays::compare);
+        List<Long> selected = GraphLibExtended.topK(edges, count, pair -> graph.labelSize((int) (long) pair), byNames);
+
+        System.out.println("The top " + selected.size() + " pair(s) of actors by number of shared movies:");
+        for (long pair: selected) {
+            String[] names = pairNames(pair);
+            System.out.println(names[0] + " & " + names[1] + " - " + graph.labelSize((int) pair));
+        }
+        System.out.println();
+    }
+
+    /**
+     * the names of the two ends of a packed edge, in alphabetical order like the pairs of the heap network
+     */
+    String[] pairNames(long pair) {
+        String[] names = {graph.name((int) (pair >>> 32)), graph.name(graph.target((int) pair))};
+        Arrays.sort(names);
+        return names;
+    }
+
+    @Override
+    void listUnreachableActors() {
+        System.out.println("Actor(s) unreachable from " + center);
+        for (int u = 0; u < graph.numVertices(); u++)
+            if (distances[u] < 0) System.out.println(graph.name(u));
+        System.out.println();
+    }
+
+    @Override
+    boolean hasActor(String actor) {
+        return graph.id(actor) >= 0;
+    }
+
+    @Override
+    boolean isReachable(String actor) {
+        int u = graph.id(actor);
+        return u >= 0 && distances[u] >= 0;
+    }
+
+    @Override
+    void showPath(String actor) {
+        int u = graph.id(actor);
+        if (u < 0) {
+            System.out.println("Actor not found");
+            suggestActors(actor);
+            return;
+        }
+        if (distances[u] < 0) {
+            System.out.println(center + " is unreachable from " + actor);
+            return;
+        }
+        if (u == centerId) {
+            System.out.println(actor + " is the current center.");
+            return;
+        }
+
+        System.out.println(actor + "'s number is " + distances[u]);
+        printPath(u, parents, element -> true);
+    }
+
+    @Override
+    void showPathWithinYears(String actor, int low, int high) {
+        int u = graph.id(actor);
+        if (u < 0) {
+            System.out.println("Actor not found");
+            suggestActors(actor);
+            return;
+        }
+        if (u == centerId) {
+            System.out.println(actor + " is the current center.");
+            return;
+        }
+        IntPredicate allowed = element -> {
+            int year = graph.elementTag(element);
+            return year != 0 && year >= low && year <= high && !avoidedMovies.get(element);
+        };
+
+        int[] dist = new int[graph.numVertices()], parent = new int[graph.numVertices()];
+        graph.bfs(centerId, e -> countMovies(e, allowed) > 0, dist, parent);
+        if (dist[u] < 0) {
+            System.out.println(center + " is unreachable from " + actor + " through movies from " + low + " to " + high);
+            return;
+        }
+
+        System.out.println(actor + "'s number through movies from " + low + " to " + high + " is " + dist[u]);
+        printPath(u, parent, allowed);
+    }
+
+    @Override
+    void showWeightedPath(String actor) {
+        int u = graph.id(actor);
+        if (u < 0) {
+            System.out.println("Actor not found");
+            suggestActors(actor);
+            return;
+        }
+        if (u == centerId) {
+            System.out.println(actor + " is the current center.");
+            return;
+        }
+        IntPredicate allowed = element -> !avoidedMovies.get(element);
+
+        double[] cost = new double[graph.numVertices()];
+        int[] parent = new int[graph.numVertices()];
+        graph.dijkstra(centerId, e -> {
+            int shared = countMovies(e, allowed);
+            return shared == 0 ? -1 : 1.0 / shared;
+        }, cost, parent);
+        if (cost[u] == GraphLibExtended.INF) {
+            System.out.println(center + " is unreachable from " + actor);
+            return;
+        }
+
+        int steps = 0;
+        for (int v = u; parent[v] >= 0; v = parent[v]) steps++;
+        System.out.println(actor + "'s weighted path to " + center + " has " + steps + " step(s), cost " + String.format(Locale.ROOT, "%.3f", cost[u]));
+        printPath(u, parent, allowed);
+    }
+
+    /**
+     * print each step of the path from u up the parents, with the shared movies that pass the filter
+     */
+    void printPath(int u, int[] parent, IntPredicate allowed) {
+        for (; parent[u] >= 0; u = parent[u]) {
+            int e = graph.edge(u, parent[u]);
+            List<String> movies = new ArrayList<>();
+            for (int k = 0; k < graph.labelSize(e); k++)
+                if (allowed.test(graph.labelElement(e, k))) movies.add(graph.elementName(graph.labelElement(e, k)));
+            System.out.println(graph.name(u) + " appeared in " + movies + " with " + graph.name(parent[u]));
+        }
+        System.out.println();
+    }
+
+    /**
+     * the number of movies on edge e that pass the filter
+     */
+    int countMovies(int e, IntPredicate allowed) {
+        int count = 0;
+        for (int k = 0; k < graph.labelSize(e); k++)
+            if (allowed.test(graph.labelElement(e, k))) count++;
+        return count;
+    }
+
+    @Override
+    void listActorsBySeparation(int low, int high) {
+        System.out.println("Actor(s) with separation from " + center + " between " + low + " to " + high + ":");
+        if (low >= high) return;
+
+        for (int u: actorsBySeparation)
+            if (distances[u] >= low && distances[u] <= high) System.out.println(graph.name(u) + " - " + distances[u]);
+    }
+
+    @Override
+    void listActorsBySeparation() {
+        System.out.println("Actor(s) sorted by separation from " + center + ":");
+
+        for (int u: actorsBySeparation)
+            System.out.println(graph.name(u) + " - " + distances[u]);
+
+        System.out.println();
+    }
+
+    /**
+     * Change the current center: one bfs over ids, then a counting sort of the reachable actors by separation
+     */
+    @Override
+    void changeCenter(String actor, Boolean hideOutput) {
+        if (actor == null) return;
+        int u = graph.id(actor);
+        if (u < 0) {
+            if (!hideOutput) {
+                System.out.println("Actor not found");
+                suggestActors(actor);
+            }
+            return;
+        }
+        center = actor;
+        centerId = u;
+        graph.bfs(u, null, distances, parents);
+
+        int maxDistance = 0, reachable = 0;
+        for (int d: distances) {
+            maxDistance = Math.max(maxDistance, d);
+            if (d >= 0) reachable++;
+        }
+        int[] next = new int[maxDistance + 1];		// next slot for each separation, starting from 1
+        for (int d: distances)
+            if (d > 0 && d < maxDistance) next[d + 1]++;
+        for (int d = 2; d <= maxDistance; d++) next[d] += next[d - 1];
+        actorsBySeparation = new int[reachable - 1];
+        for (int v = 0; v < distances.length; v++)
+            if (distances[v] > 0) actorsBySeparation[next[distances[v]]++] = v;
+
+        if (!hideOutput) System.out.println(center + " is now the center of the acting universe, connected to " + reachable + "/" + graph.numVertices() + " actors with average separation " + avgSeparations.get(u) + "\n");
+    }
+}
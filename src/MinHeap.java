@@ -0,0 +1,84 @@
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of (double key, long value) entries, kept in primitive arrays
+ * Avoids boxing a node object per push, so it is cheap to use as the frontier of a Dijkstra search
+ * There is no decrease-key: push the entry again with the smaller key and skip stale ones when polled
+ */
+public class MinHeap {
+	private double[] keys;
+	private long[] values;
+	private int size;
+
+	/**
+	 * Create an empty heap
+	 * @param capacity initial capacity, the heap grows as needed
+	 */
+	public MinHeap(int capacity) {
+		keys = new double[Math.max(capacity, 1)];
+		values = new long[keys.length];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** The smallest key in the heap (assumed not empty) */
+	public double peekKey() {
+		return keys[0];
+	}
+
+	/** The value paired with the smallest key (assumed not empty) */
+	public long peekValue() {
+		return values[0];
+	}
+
+	/** Adds an entry to the heap */
+	public void push(double key, long value) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		int i = size++;
+		// sift up
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[parent] <= key) break;
+			keys[i] = keys[parent];
+			values[i] = values[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+
+	/** Removes the entry with the smallest key, and returns its value (assumed not empty) */
+	public long poll() {
+		long top = values[0];
+		size--;
+		if (size > 0) siftDown(keys[size], values[size]);
+		return top;
+	}
+
+	/**
+	 * Put an entry at the root and restore the heap order below it
+	 */
+	private void siftDown(double key, long value) {
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) break;
+			if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+			if (key <= keys[child]) break;
+			keys[i] = keys[child];
+			values[i] = values[child];
+			i = child;
+		}
+		keys[i] = key;
+		values[i] = value;
+	}
+}
@@ -0,0 +1,57 @@
+import java.util.*;
+import java.util.function.IntPredicate;
+
+/**
+ * Edge label of the actor network: the movies two actors appeared in together, as ids into a shared list of titles
+ * Iterating yields the titles, so it prints like any set of titles, while filters test the ids directly
+ * (e.g. against an array of release years) without hashing a single title.
+ */
+public class MovieSet extends AbstractSet<String> {
+    private final List<String> titles;
+    private int[] ids = new int[2];
+    private int size;
+
+    /**
+     * Create an empty set
+     * @param titles the title of every movie, by id
+     */
+    public MovieSet(List<String> titles) {
+        this.titles = titles;
+    }
+
+    /**
+     * Add a movie by id (assumed not in the set yet)
+     */
+    public void addMovie(int id) {
+        if (size == ids.length) ids = Arrays.copyOf(ids, 2 * size);
+        ids[size++] = id;
+    }
+
+    /** The id of the k-th movie, in the order they were added */
+    public int movie(int k) {
+        return ids[k];
+    }
+
+    /** The number of movies whose id passes the filter */
+    public int count(IntPredicate filter) {
+        int count = 0;
+        for (int k = 0; k < size; k++)
+            if (filter.test(ids[k])) count++;
+        return count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            int k = 0;
+            public boolean hasNext() { return k < size; }
+            public String next() {
+                if (k >= size) throw new NoSuchElementException();
+                return titles.get(ids[k++]);
+            }
+        };
+    }
+}
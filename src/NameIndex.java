@@ -0,0 +1,419 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * Compact, read-only index over a set of names, for prefix completion and typo suggestions
+ * All names are packed into one char buffer, sorted by their case-folded form (then by the name itself, so names that
+ * only differ by case are all kept), which makes the buffer behave like a trie: the names below a prefix are a
+ * contiguous run, and the children of a prefix are the sub-runs that share one more character.
+ * Children are found by hopping over the longest-common-prefix array, except for runs of at least BIG_RUN names,
+ * whose children are precomputed in a small node table so the top of the trie costs nothing to enumerate.
+ * A prefix query is a binary search; a fuzzy query walks the trie with the rows of the edit distance table,
+ * and once a prefix is exactly maxEdits away it only follows the characters of the query that could still match.
+ * Case is folded char by char with Character.toLowerCase, which doesn't depend on the default locale.
+ * The index only lives in buffers, so it can be written to a file and mapped back instead of kept on the heap.
+ */
+public class NameIndex {
+	static final int BIG_RUN = 64;
+	static final int HEADER_INTS = 4;
+
+	private final int size, numChars, numNodes, maxNameLength;
+	private final CharBuffer chars;		// the names, back to back, in sorted order
+	private final IntBuffer offsets;	// name i is chars[offsets[i] .. offsets[i+1])
+	private final IntBuffer lcp;		// length of the folded prefix name i shares with name i-1, -1 for the first name
+	private final IntBuffer nextLcp;	// first index after i whose lcp is not bigger than lcp[i], or size
+	private final IntBuffer ids;		// position of name i in the collection the index was built from
+	// node table of the big runs, node 0 being all the names; the children of a node are contiguous
+	private final IntBuffer nodeLo, nodeHi, nodeFirst, nodeCount;
+	private final CharBuffer nodeChar;
+
+	/**
+	 * Build the index from a collection of names
+	 * @param source names to index; the id of a name is its position in source, and exact duplicates keep the first
+	 */
+	public NameIndex(Iterable<String> source) {
+		Map<String, Integer> sorted = new TreeMap<>((a, b) -> {
+			int c = compareFolded(a, b);
+			return c != 0 ? c : a.compareTo(b);
+		});
+		int position = 0;
+		for (String name: source) sorted.putIfAbsent(name, position++);
+
+		size = sorted.size();
+		int[] offsetArray = new int[size + 1], idArray = new int[size];
+		int i = 0, length = 0, max = 0;
+		for (Map.Entry<String, Integer> entry: sorted.entrySet()) {
+			idArray[i] = entry.getValue();
+			length += entry.getKey().length();
+			offsetArray[++i] = length;
+			max = Math.max(max, entry.getKey().length());
+		}
+		char[] charArray = new char[length];
+		i = 0;
+		for (String name: sorted.keySet()) {
+			name.getChars(0, name.length(), charArray, offsetArray[i]);
+			i++;
+		}
+		numChars = length;
+		maxNameLength = max;
+		chars = CharBuffer.wrap(charArray);
+		offsets = IntBuffer.wrap(offsetArray);
+		ids = IntBuffer.wrap(idArray);
+
+		int[] lcpArray = new int[size], nextArray = new int[size];
+		if (size > 0) lcpArray[0] = -1;
+		for (i = 1; i < size; i++) {
+			int t = 0, shared = Math.min(length(i - 1), length(i));
+			while (t < shared && charAt(i - 1, t) == charAt(i, t)) t++;
+			lcpArray[i] = t;
+		}
+		// scan from the right with a stack of indices whose lcp increases towards the top
+		int[] stack = new int[size];
+		int top = 0;
+		for (i = size - 1; i >= 0; i--) {
+			while (top > 0 && lcpArray[stack[top - 1]] > lcpArray[i]) top--;
+			nextArray[i] = top > 0 ? stack[top - 1] : size;
+			stack[top++] = i;
+		}
+		lcp = IntBuffer.wrap(lcpArray);
+		nextLcp = IntBuffer.wrap(nextArray);
+
+		Nodes nodes = new Nodes();
+		nodes.add(0, size, (char) 0);
+		expand(nodes, 0, 0);
+		numNodes = nodes.count;
+		nodeLo = IntBuffer.wrap(nodes.lo, 0, numNodes).slice();
+		nodeHi = IntBuffer.wrap(nodes.hi, 0, numNodes).slice();
+		nodeFirst = IntBuffer.wrap(nodes.first, 0, numNodes).slice();
+		nodeCount = IntBuffer.wrap(nodes.children, 0, numNodes).slice();
+		nodeChar = CharBuffer.wrap(nodes.c, 0, numNodes).slice();
+	}
+
+	/**
+	 * View an index written by write(), e.g. in a mapped file
+	 */
+	private NameIndex(ByteBuffer buffer) {
+		IntBuffer header = buffer.slice(0, 4 * HEADER_INTS).asIntBuffer();
+		size = header.get(0);
+		numChars = header.get(1);
+		numNodes = header.get(2);
+		maxNameLength = header.get(3);
+
+		int position = 4 * HEADER_INTS;
+		chars = buffer.slice(position, 2 * numChars).asCharBuffer();		position += 2 * numChars;
+		offsets = buffer.slice(position, 4 * (size + 1)).asIntBuffer();		position += 4 * (size + 1);
+		lcp = buffer.slice(position, 4 * size).asIntBuffer();				position += 4 * size;
+		nextLcp = buffer.slice(position, 4 * size).asIntBuffer();			position += 4 * size;
+		ids = buffer.slice(position, 4 * size).asIntBuffer();				position += 4 * size;
+		nodeLo = buffer.slice(position, 4 * numNodes).asIntBuffer();		position += 4 * numNodes;
+		nodeHi = buffer.slice(position, 4 * numNodes).asIntBuffer();		position += 4 * numNodes;
+		nodeFirst = buffer.slice(position, 4 * numNodes).asIntBuffer();		position += 4 * numNodes;
+		nodeCount = buffer.slice(position, 4 * numNodes).asIntBuffer();		position += 4 * numNodes;
+		nodeChar = buffer.slice(position, 2 * numNodes).asCharBuffer();
+	}
+
+	/**
+	 * Map an index written by write() at a byte position of a file
+	 */
+	public static NameIndex map(FileChannel channel, long position) throws IOException {
+		IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, position, 4 * HEADER_INTS).asIntBuffer();
+		long byteSize = byteSize(header.get(0), header.get(1), header.get(2));
+		if (byteSize > Integer.MAX_VALUE) throw new IOException("Name index larger than 2GB.");
+		return new NameIndex(channel.map(FileChannel.MapMode.READ_ONLY, position, byteSize));
+	}
+
+	/**
+	 * Write the index, big-endian, so that map() can read it back as is
+	 */
+	public void write(DataOutputStream output) throws IOException {
+		for (int x: new int[]{size, numChars, numNodes, maxNameLength}) output.writeInt(x);
+		for (int i = 0; i < numChars; i++) output.writeChar(chars.get(i));
+		for (IntBuffer section: new IntBuffer[]{offsets, lcp, nextLcp, ids, nodeLo, nodeHi, nodeFirst, nodeCount})
+			for (int i = 0; i < section.limit(); i++) output.writeInt(section.get(i));
+		for (int i = 0; i < numNodes; i++) output.writeChar(nodeChar.get(i));
+	}
+
+	/** How many bytes write() takes */
+	public long byteSize() {
+		return byteSize(size, numChars, numNodes);
+	}
+
+	private static long byteSize(int size, int numChars, int numNodes) {
+		return 4L * HEADER_INTS + 2L * numChars + 4L * (size + 1) + 12L * size + 18L * numNodes;
+	}
+
+	/** How many names are in the index */
+	public int size() {
+		return size;
+	}
+
+	/** Whether or not the exact name (case included) is in the index */
+	public boolean contains(String name) {
+		return id(name) >= 0;
+	}
+
+	/**
+	 * The id of the exact name (case included), i.e. its position in the collection the index was built from
+	 * @return the id, or -1 if the name isn't in the index
+	 */
+	public int id(String name) {
+		for (int i = lowerBound(name); i < size && length(i) == name.length() && hasPrefix(i, name); i++)
+			if (name(i).equals(name)) return ids.get(i);
+		return -1;
+	}
+
+	/**
+	 * Return the names starting with a given prefix, ignoring case
+	 * @param prefix the prefix to complete
+	 * @param limit max number of names to return
+	 * @return names in alphabetical order
+	 */
+	public List<String> complete(String prefix, int limit) {
+		List<String> matches = new ArrayList<>();
+
+		for (int i = lowerBound(prefix); i < size && matches.size() < limit && hasPrefix(i, prefix); i++)
+			matches.add(name(i));
+
+		return matches;
+	}
+
+	/**
+	 * Return the names within a bounded edit (Levenshtein) distance of the query, ignoring case
+	 * @param query the (possibly misspelled) name
+	 * @param maxEdits max number of insertions, deletions or substitutions allowed
+	 * @param limit max number of names to return
+	 * @return names sorted by edit distance, then alphabetically
+	 */
+	public List<String> suggest(String query, int maxEdits, int limit) {
+		Search search = new Search(query, maxEdits);
+		search.visit(0, 0, size, 0);
+
+		List<Integer> order = new ArrayList<>();
+		for (int k = 0; k < search.found.size(); k++) order.add(k);
+		order.sort(Comparator.comparingInt((Integer k) -> search.distances.get(k)).thenComparingInt(search.found::get));
+
+		List<String> suggestions = new ArrayList<>();
+		for (int k = 0; k < order.size() && k < limit; k++) suggestions.add(name(search.found.get(order.get(k))));
+
+		return suggestions;
+	}
+
+	/**
+	 * State of one fuzzy query: the query, and the edit distance row of every prefix on the current trie path
+	 */
+	private class Search {
+		final char[] q;
+		final int maxEdits;
+		final int[][] rows;		// rows[d] is the edit distance row for the current prefix of length d
+		final List<Integer> found = new ArrayList<>();
+		final List<Integer> distances = new ArrayList<>();
+
+		Search(String query, int maxEdits) {
+			q = new char[query.length()];
+			for (int j = 0; j < q.length; j++) q[j] = fold(query.charAt(j));
+			this.maxEdits = maxEdits;
+			rows = new int[maxNameLength + 1][q.length + 1];
+			for (int j = 0; j <= q.length; j++) rows[0][j] = j;
+		}
+
+		/**
+		 * Visit the names in [lo, hi), which all share a prefix of length d whose row is rows[d]
+		 * @param node the node of the run in the node table, or -1 if its children aren't precomputed
+		 */
+		void visit(int node, int lo, int hi, int d) {
+			int[] row = rows[d];
+			int m = q.length;
+
+			// names that are exactly the prefix sort first
+			while (lo < hi && length(lo) == d) {
+				if (row[m] <= maxEdits) {
+					found.add(lo);
+					distances.add(row[m]);
+				}
+				lo++;
+			}
+
+			int best = Integer.MAX_VALUE;
+			for (int x: row) best = Math.min(best, x);
+			if (best > maxEdits) return;
+
+			// characters that can come next: any if there is an edit to spare,
+			// otherwise only characters of the query that line up with the prefix
+			char[] next = null;
+			int count = 0;
+			if (best == maxEdits) {
+				next = new char[m];
+				for (int j = 1; j <= m; j++)
+					if (row[j - 1] == maxEdits) next[count++] = q[j - 1];
+				Arrays.sort(next, 0, count);
+			}
+
+			if (node >= 0 && nodeCount.get(node) > 0) {
+				int first = nodeFirst.get(node), last = first + nodeCount.get(node);
+				if (next == null) {
+					for (int child = first; child < last; child++)
+						descend(child, nodeLo.get(child), nodeHi.get(child), d, nodeChar.get(child));
+				} else {
+					for (int t = 0; t < count; t++) {
+						if (t > 0 && next[t] == next[t - 1]) continue;
+						int child = childNode(first, last, next[t]);
+						if (child >= 0) descend(child, nodeLo.get(child), nodeHi.get(child), d, next[t]);
+					}
+				}
+				return;
+			}
+
+			while (lo < hi) {
+				int end = childEnd(lo, hi, d);
+				char c = charAt(lo, d);
+				if (next == null || Arrays.binarySearch(next, 0, count, c) >= 0) descend(-1, lo, end, d, c);
+				lo = end;
+			}
+		}
+
+		/**
+		 * Compute the row for the prefix extended by c, and visit the names below it if they can still match
+		 */
+		void descend(int node, int lo, int hi, int d, char c) {
+			int[] above = rows[d], row = rows[d + 1];
+			int best = row[0] = d + 1;
+			for (int j = 1; j <= q.length; j++) {
+				row[j] = Math.min(Math.min(row[j - 1], above[j]) + 1, above[j - 1] + (q[j - 1] == c ? 0 : 1));
+				best = Math.min(best, row[j]);
+			}
+			if (best <= maxEdits) visit(node, lo, hi, d + 1);
+		}
+	}
+
+	/**
+	 * Growable node table, only used while building the index
+	 */
+	private static class Nodes {
+		int[] lo = new int[16], hi = new int[16], first = new int[16], children = new int[16];
+		char[] c = new char[16];
+		int count;
+
+		void add(int runLo, int runHi, char runChar) {
+			if (count == lo.length) {
+				lo = Arrays.copyOf(lo, count * 2);
+				hi = Arrays.copyOf(hi, count * 2);
+				first = Arrays.copyOf(first, count * 2);
+				children = Arrays.copyOf(children, count * 2);
+				c = Arrays.copyOf(c, count * 2);
+			}
+			lo[count] = runLo;
+			hi[count] = runHi;
+			c[count] = runChar;
+			count++;
+		}
+	}
+
+	/**
+	 * Precompute the children of a node if its run is big, and recursively theirs
+	 */
+	private void expand(Nodes nodes, int node, int d) {
+		int lo = nodes.lo[node], hi = nodes.hi[node];
+		if (hi - lo < BIG_RUN) return;
+
+		while (lo < hi && length(lo) == d) lo++;
+		int first = nodes.count;
+		while (lo < hi) {
+			int end = childEnd(lo, hi, d);
+			nodes.add(lo, end, charAt(lo, d));
+			lo = end;
+		}
+		nodes.first[node] = first;
+		nodes.children[node] = nodes.count - first;
+
+		for (int child = first; child < first + nodes.children[node]; child++) expand(nodes, child, d + 1);
+	}
+
+	/**
+	 * The child among nodes [first, last) whose character is c, or -1 if there is none
+	 */
+	private int childNode(int first, int last, char c) {
+		while (first < last) {
+			int mid = (first + last) >>> 1;
+			char x = nodeChar.get(mid);
+			if (x < c) first = mid + 1;
+			else if (x > c) last = mid;
+			else return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * End of the run of names in [lo, hi) that share the character at position d with name lo
+	 * That is the first index after lo whose lcp is at most d: lcp[lo] is already at most d, so it's nextLcp[lo] then,
+	 * and otherwise nextLcp hops over indices with bigger lcp until reaching one that isn't.
+	 */
+	private int childEnd(int lo, int hi, int d) {
+		if (lcp.get(lo) == d) return nextLcp.get(lo);
+		int x = lo + 1;
+		while (x < hi && lcp.get(x) > d) x = nextLcp.get(x);
+		return Math.min(x, hi);
+	}
+
+	/**
+	 * Index of the first name whose folded form is not smaller than the folded key
+	 */
+	private int lowerBound(String key) {
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compareFolded(mid, key) < 0) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/** Whether name i starts with the prefix, ignoring case */
+	private boolean hasPrefix(int i, String prefix) {
+		if (length(i) < prefix.length()) return false;
+		for (int t = 0; t < prefix.length(); t++)
+			if (charAt(i, t) != fold(prefix.charAt(t))) return false;
+		return true;
+	}
+
+	/** Compares the folded forms of name i and the key */
+	private int compareFolded(int i, String key) {
+		int n = Math.min(length(i), key.length());
+		for (int t = 0; t < n; t++) {
+			int c = Character.compare(charAt(i, t), fold(key.charAt(t)));
+			if (c != 0) return c;
+		}
+		return Integer.compare(length(i), key.length());
+	}
+
+	/** Compares the folded forms of two names */
+	private static int compareFolded(String a, String b) {
+		int n = Math.min(a.length(), b.length());
+		for (int t = 0; t < n; t++) {
+			int c = Character.compare(fold(a.charAt(t)), fold(b.charAt(t)));
+			if (c != 0) return c;
+		}
+		return Integer.compare(a.length(), b.length());
+	}
+
+	private String name(int i) {
+		return chars.subSequence(offsets.get(i), offsets.get(i + 1)).toString();
+	}
+
+	private int length(int i) {
+		return offsets.get(i + 1) - offsets.get(i);
+	}
+
+	/** The folded character at position t of name i */
+	private char charAt(int i, int t) {
+		return fold(chars.get(offsets.get(i) + t));
+	}
+
+	private static char fold(char c) {
+		return Character.toLowerCase(c);
+	}
+}